@@ -1,11 +1,16 @@
 package com.moona.productsmanager.moonaproductsmanager.cli;
 
+import com.moona.productsmanager.moonaproductsmanager.model.UpdateField;
 import com.moona.productsmanager.moonaproductsmanager.service.ErpIngestService;
+import com.moona.productsmanager.moonaproductsmanager.service.ProductsUpdateService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.Set;
+
 @Component
 public class ErpReportRunner implements CommandLineRunner {
     private static final Logger log = LoggerFactory.getLogger(ErpReportRunner.class);
@@ -21,6 +26,8 @@ public class ErpReportRunner implements CommandLineRunner {
         boolean triggered = false;
         boolean dryRun = false;
         String reportName = "mona3 Report";
+        String resumeRunId = null;
+        String fieldsArg = null;
         int exitCode = 0;
 
         for (int i = 0; i < args.length; i++) {
@@ -31,12 +38,25 @@ public class ErpReportRunner implements CommandLineRunner {
                 reportName = args[i + 1];
             } else if ("--dry-run".equalsIgnoreCase(arg)) {
                 dryRun = true;
+            } else if ("--resume".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                resumeRunId = args[i + 1];
+            } else if ("--fields".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                fieldsArg = args[i + 1];
             }
         }
 
         if (triggered) {
             try {
-                erpIngestService.importFromErp(reportName, dryRun)
+                Set<UpdateField> fields = ProductsUpdateService.UpdateMode.SKIP_PRODUCT_MASTER_DATA.fields();
+                if (fieldsArg != null) {
+                    try {
+                        fields = UpdateField.parse(fieldsArg);
+                    } catch (IllegalArgumentException ex) {
+                        throw new IllegalArgumentException("Invalid --fields '" + fieldsArg + "', valid fields are "
+                            + Arrays.toString(UpdateField.values()), ex);
+                    }
+                }
+                erpIngestService.importFromErp(reportName, dryRun, resumeRunId, fields)
                     .doOnSuccess(msg -> log.info(msg))
                     .block();
             } catch (Exception ex) {
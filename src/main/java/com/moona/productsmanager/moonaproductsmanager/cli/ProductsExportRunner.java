@@ -5,6 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
 
 import java.util.Arrays;
 import java.util.HashMap;
@@ -28,6 +29,8 @@ public class ProductsExportRunner implements CommandLineRunner {
         Boolean published = null;
         String createdAfter = null;
         String updatedBefore = null;
+        boolean sharded = false;
+        boolean incremental = false;
         for (int i = 0; i < args.length; i++) {
             String arg = args[i];
             if (arg.startsWith("productsExport")) {
@@ -37,8 +40,19 @@ public class ProductsExportRunner implements CommandLineRunner {
                 published = parseBoolean(options.get("published"));
                 createdAfter = options.get("createdAfter");
                 updatedBefore = options.get("updatedBefore");
+                sharded = Boolean.TRUE.equals(parseBoolean(options.get("sharded"))) && (categoryId == null || categoryId.isBlank());
+                incremental = Boolean.TRUE.equals(parseBoolean(options.get("incremental")))
+                    && categoryId == null && published == null && createdAfter == null && updatedBefore == null;
                 try {
-                    productsExportService.exportProductsToFile(createdAfter, updatedBefore, categoryId, published)
+                    Mono<String> export;
+                    if (incremental) {
+                        export = productsExportService.exportProductsToFileIncremental();
+                    } else if (sharded) {
+                        export = productsExportService.exportProductsToFileShardedByCategory(createdAfter, updatedBefore, published);
+                    } else {
+                        export = productsExportService.exportProductsToFile(createdAfter, updatedBefore, categoryId, published);
+                    }
+                    export
                         .doOnSuccess(msg -> log.info(msg))
                         .block();
                 } catch (Exception ex) {
@@ -49,7 +63,7 @@ public class ProductsExportRunner implements CommandLineRunner {
             }
         }
         if (triggered) {
-            log.info("productsExport task finished (categoryId={}, published={}, createdAfter={}, updatedBefore={}); exiting with code {}", categoryId, published, createdAfter, updatedBefore, exitCode);
+            log.info("productsExport task finished (categoryId={}, published={}, createdAfter={}, updatedBefore={}, sharded={}, incremental={}); exiting with code {}", categoryId, published, createdAfter, updatedBefore, sharded, incremental, exitCode);
             System.exit(exitCode);
         }
     }
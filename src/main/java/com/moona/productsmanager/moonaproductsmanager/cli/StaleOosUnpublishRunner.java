@@ -23,6 +23,7 @@ public class StaleOosUnpublishRunner implements CommandLineRunner {
         String updatedBefore = null;
         int pageSize = 0;
         Boolean published = null;
+        String resumeRunId = null;
         int exitCode = 0;
 
         for (int i = 0; i < args.length; i++) {
@@ -41,12 +42,14 @@ public class StaleOosUnpublishRunner implements CommandLineRunner {
                 try {
                     published = Boolean.parseBoolean(args[i + 1]);
                 } catch (Exception ignored) { }
+            } else if ("--resume".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                resumeRunId = args[i + 1];
             }
         }
 
         if (triggered) {
             try {
-                job.run(updatedBefore, pageSize, dryRun, published)
+                job.run(updatedBefore, pageSize, dryRun, published, resumeRunId)
                     .doOnSuccess(msg -> log.info(msg))
                     .block();
             } catch (Exception ex) {
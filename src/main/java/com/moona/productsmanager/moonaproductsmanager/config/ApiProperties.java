@@ -3,12 +3,18 @@ package com.moona.productsmanager.moonaproductsmanager.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Component
 @ConfigurationProperties(prefix = "api")
 public class ApiProperties {
     private String baseUrl;
     private String token;
     private Timeout timeout = new Timeout();
+    private int maxResponseBytes = 16 * 1024 * 1024;
+    private Multiplex multiplex = new Multiplex();
+    private RateLimit rateLimit = new RateLimit();
 
     public String getBaseUrl() {
         return baseUrl;
@@ -34,6 +40,30 @@ public class ApiProperties {
         this.timeout = timeout;
     }
 
+    public int getMaxResponseBytes() {
+        return maxResponseBytes;
+    }
+
+    public void setMaxResponseBytes(int maxResponseBytes) {
+        this.maxResponseBytes = maxResponseBytes;
+    }
+
+    public Multiplex getMultiplex() {
+        return multiplex;
+    }
+
+    public void setMultiplex(Multiplex multiplex) {
+        this.multiplex = multiplex;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public void setRateLimit(RateLimit rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
     public static class Timeout {
         private int connectMs;
         private int readMs;
@@ -54,4 +84,91 @@ public class ApiProperties {
             this.readMs = readMs;
         }
     }
+
+    public static class Multiplex {
+        private boolean enabled = true;
+        private int maxBatchSize = 25;
+        private int windowMs = 20;
+        private int concurrency = 2;
+        private int operationTimeoutMs = 120000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public int getWindowMs() {
+            return windowMs;
+        }
+
+        public void setWindowMs(int windowMs) {
+            this.windowMs = windowMs;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public int getOperationTimeoutMs() {
+            return operationTimeoutMs;
+        }
+
+        public void setOperationTimeoutMs(int operationTimeoutMs) {
+            this.operationTimeoutMs = operationTimeoutMs;
+        }
+    }
+
+    public static class RateLimit {
+        private boolean enabled = true;
+        private double requestsPerSecond = 10;
+        private int burst = 20;
+        private Map<String, Integer> operationWeights = new HashMap<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public void setRequestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+
+        public Map<String, Integer> getOperationWeights() {
+            return operationWeights;
+        }
+
+        public void setOperationWeights(Map<String, Integer> operationWeights) {
+            this.operationWeights = operationWeights;
+        }
+    }
 }
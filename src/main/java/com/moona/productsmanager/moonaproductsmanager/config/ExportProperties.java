@@ -8,6 +8,10 @@ import org.springframework.stereotype.Component;
 public class ExportProperties {
     private String channel = "ramallah";
     private int pageSize = 100;
+    private int prefetchPages = 2;
+    private int shardConcurrency = 4;
+    private Incremental incremental = new Incremental();
+    private AdaptivePaging adaptivePaging = new AdaptivePaging();
 
     public String getChannel() {
         return channel;
@@ -24,5 +28,96 @@ public class ExportProperties {
     public void setPageSize(int pageSize) {
         this.pageSize = pageSize;
     }
-}
 
+    public int getPrefetchPages() {
+        return prefetchPages;
+    }
+
+    public void setPrefetchPages(int prefetchPages) {
+        this.prefetchPages = prefetchPages;
+    }
+
+    public int getShardConcurrency() {
+        return shardConcurrency;
+    }
+
+    public void setShardConcurrency(int shardConcurrency) {
+        this.shardConcurrency = shardConcurrency;
+    }
+
+    public Incremental getIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(Incremental incremental) {
+        this.incremental = incremental;
+    }
+
+    public AdaptivePaging getAdaptivePaging() {
+        return adaptivePaging;
+    }
+
+    public void setAdaptivePaging(AdaptivePaging adaptivePaging) {
+        this.adaptivePaging = adaptivePaging;
+    }
+
+    public static class Incremental {
+        private int fullResyncHours = 168;
+
+        public int getFullResyncHours() {
+            return fullResyncHours;
+        }
+
+        public void setFullResyncHours(int fullResyncHours) {
+            this.fullResyncHours = fullResyncHours;
+        }
+    }
+
+    public static class AdaptivePaging {
+        private boolean enabled = true;
+        private int minPageSize = 20;
+        private int maxPageSize = 100;
+        private int targetPageMs = 3000;
+        private int maxPageBytes = 8 * 1024 * 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMinPageSize() {
+            return minPageSize;
+        }
+
+        public void setMinPageSize(int minPageSize) {
+            this.minPageSize = minPageSize;
+        }
+
+        public int getMaxPageSize() {
+            return maxPageSize;
+        }
+
+        public void setMaxPageSize(int maxPageSize) {
+            this.maxPageSize = maxPageSize;
+        }
+
+        public int getTargetPageMs() {
+            return targetPageMs;
+        }
+
+        public void setTargetPageMs(int targetPageMs) {
+            this.targetPageMs = targetPageMs;
+        }
+
+        public int getMaxPageBytes() {
+            return maxPageBytes;
+        }
+
+        public void setMaxPageBytes(int maxPageBytes) {
+            this.maxPageBytes = maxPageBytes;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.moona.productsmanager.moonaproductsmanager.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "snapshot")
+public class SnapshotProperties {
+    private String path = "catalog-snapshot.json.gz";
+    private int maxAgeMinutes = 30;
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public int getMaxAgeMinutes() {
+        return maxAgeMinutes;
+    }
+
+    public void setMaxAgeMinutes(int maxAgeMinutes) {
+        this.maxAgeMinutes = maxAgeMinutes;
+    }
+}
@@ -0,0 +1,261 @@
+package com.moona.productsmanager.moonaproductsmanager.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "update")
+public class UpdateProperties {
+    private int skuBatchSize = 100;
+    private int skuLookupConcurrency = 2;
+    private int bulkBatchSize = 50;
+    private int bulkConcurrency = 2;
+    private int bulkMaxOperations = 40;
+    private int createBatchSize = 50;
+    private boolean diffEnabled = true;
+    private String skuIndexPath = "sku-index.json";
+    private String journalDir = "upsert-journal";
+    private int retryConcurrency = 2;
+    private boolean ratingSyncEnabled = true;
+    private int ratingBatchSize = 40;
+    private Concurrency concurrency = new Concurrency();
+    private Lanes lanes = new Lanes();
+    private WriteBehind writeBehind = new WriteBehind();
+
+    public int getSkuBatchSize() {
+        return skuBatchSize;
+    }
+
+    public void setSkuBatchSize(int skuBatchSize) {
+        this.skuBatchSize = skuBatchSize;
+    }
+
+    public int getSkuLookupConcurrency() {
+        return skuLookupConcurrency;
+    }
+
+    public void setSkuLookupConcurrency(int skuLookupConcurrency) {
+        this.skuLookupConcurrency = skuLookupConcurrency;
+    }
+
+    public int getBulkBatchSize() {
+        return bulkBatchSize;
+    }
+
+    public void setBulkBatchSize(int bulkBatchSize) {
+        this.bulkBatchSize = bulkBatchSize;
+    }
+
+    public int getBulkMaxOperations() {
+        return bulkMaxOperations;
+    }
+
+    public void setBulkMaxOperations(int bulkMaxOperations) {
+        this.bulkMaxOperations = bulkMaxOperations;
+    }
+
+    public int getBulkConcurrency() {
+        return bulkConcurrency;
+    }
+
+    public void setBulkConcurrency(int bulkConcurrency) {
+        this.bulkConcurrency = bulkConcurrency;
+    }
+
+    public int getCreateBatchSize() {
+        return createBatchSize;
+    }
+
+    public void setCreateBatchSize(int createBatchSize) {
+        this.createBatchSize = createBatchSize;
+    }
+
+    public boolean isDiffEnabled() {
+        return diffEnabled;
+    }
+
+    public void setDiffEnabled(boolean diffEnabled) {
+        this.diffEnabled = diffEnabled;
+    }
+
+    public String getSkuIndexPath() {
+        return skuIndexPath;
+    }
+
+    public void setSkuIndexPath(String skuIndexPath) {
+        this.skuIndexPath = skuIndexPath;
+    }
+
+    public String getJournalDir() {
+        return journalDir;
+    }
+
+    public void setJournalDir(String journalDir) {
+        this.journalDir = journalDir;
+    }
+
+    public int getRetryConcurrency() {
+        return retryConcurrency;
+    }
+
+    public void setRetryConcurrency(int retryConcurrency) {
+        this.retryConcurrency = retryConcurrency;
+    }
+
+    public boolean isRatingSyncEnabled() {
+        return ratingSyncEnabled;
+    }
+
+    public void setRatingSyncEnabled(boolean ratingSyncEnabled) {
+        this.ratingSyncEnabled = ratingSyncEnabled;
+    }
+
+    public int getRatingBatchSize() {
+        return ratingBatchSize;
+    }
+
+    public void setRatingBatchSize(int ratingBatchSize) {
+        this.ratingBatchSize = ratingBatchSize;
+    }
+
+    public Concurrency getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(Concurrency concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public Lanes getLanes() {
+        return lanes;
+    }
+
+    public void setLanes(Lanes lanes) {
+        this.lanes = lanes;
+    }
+
+    public WriteBehind getWriteBehind() {
+        return writeBehind;
+    }
+
+    public void setWriteBehind(WriteBehind writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public static class Concurrency {
+        private int initialLimit = 4;
+        private int minLimit = 1;
+        private int maxLimit = 64;
+        private int latencyThresholdMs = 10000;
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public int getLatencyThresholdMs() {
+            return latencyThresholdMs;
+        }
+
+        public void setLatencyThresholdMs(int latencyThresholdMs) {
+            this.latencyThresholdMs = latencyThresholdMs;
+        }
+    }
+
+    public static class Lanes {
+        private int stock = 16;
+        private int price = 16;
+        private int publish = 8;
+        private int masterData = 8;
+        private int create = 4;
+
+        public int getStock() {
+            return stock;
+        }
+
+        public void setStock(int stock) {
+            this.stock = stock;
+        }
+
+        public int getPrice() {
+            return price;
+        }
+
+        public void setPrice(int price) {
+            this.price = price;
+        }
+
+        public int getPublish() {
+            return publish;
+        }
+
+        public void setPublish(int publish) {
+            this.publish = publish;
+        }
+
+        public int getMasterData() {
+            return masterData;
+        }
+
+        public void setMasterData(int masterData) {
+            this.masterData = masterData;
+        }
+
+        public int getCreate() {
+            return create;
+        }
+
+        public void setCreate(int create) {
+            this.create = create;
+        }
+    }
+
+    public static class WriteBehind {
+        private boolean enabled = true;
+        private int windowMs = 2000;
+        private int maxPending = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getWindowMs() {
+            return windowMs;
+        }
+
+        public void setWindowMs(int windowMs) {
+            this.windowMs = windowMs;
+        }
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+    }
+}
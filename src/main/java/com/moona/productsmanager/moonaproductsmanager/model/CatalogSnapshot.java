@@ -0,0 +1,11 @@
+package com.moona.productsmanager.moonaproductsmanager.model;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public record CatalogSnapshot(OffsetDateTime watermark, OffsetDateTime fullSyncAt, OffsetDateTime syncedAt, List<Product> products) {
+
+    public CatalogSnapshot {
+        products = products == null ? List.of() : products;
+    }
+}
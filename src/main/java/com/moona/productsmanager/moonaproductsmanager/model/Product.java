@@ -34,6 +34,40 @@ public class Product {
     private OffsetDateTime created;
     private OffsetDateTime updatedAt;
 
+    public Product() {
+    }
+
+    public Product(Product other) {
+        this.id = other.id;
+        this.sku = other.sku;
+        this.name = other.name;
+        this.price = other.price;
+        this.costPrice = other.costPrice;
+        this.availableQuantity = other.availableQuantity;
+        this.categoryId = other.categoryId;
+        this.categoryName = other.categoryName;
+        this.parentCategoryName = other.parentCategoryName;
+        this.weighted = other.weighted;
+        this.weight = other.weight;
+        this.minAmount = other.minAmount;
+        this.trackInventory = other.trackInventory;
+        this.isPublished = other.isPublished;
+        this.imageUrl = other.imageUrl;
+        this.channelId = other.channelId;
+        this.warehouseId = other.warehouseId;
+        this.rating = other.rating;
+        this.boxItemBarcode = other.boxItemBarcode;
+        this.boxSize = other.boxSize;
+        this.neededQuantity = other.neededQuantity;
+        this.isBoycott = other.isBoycott;
+        this.minOrderQuantity = other.minOrderQuantity;
+        this.provider = other.provider;
+        this.providers = other.providers == null ? null : new ArrayList<>(other.providers);
+        this.minStockQuantity = other.minStockQuantity;
+        this.created = other.created;
+        this.updatedAt = other.updatedAt;
+    }
+
     public String getId() {
         return id;
     }
@@ -0,0 +1,29 @@
+package com.moona.productsmanager.moonaproductsmanager.model;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+public enum UpdateField {
+    STOCK,
+    PRICE,
+    PUBLISH,
+    ATTRIBUTES,
+    RATING,
+    MASTER;
+
+    public static final Set<UpdateField> PRODUCT_FIELDS = EnumSet.of(ATTRIBUTES, RATING, MASTER);
+
+    public static Set<UpdateField> parse(String csv) {
+        Set<UpdateField> fields = EnumSet.noneOf(UpdateField.class);
+        for (String token : csv.split(",")) {
+            if (!token.isBlank()) {
+                fields.add(valueOf(token.trim().toUpperCase(Locale.ROOT)));
+            }
+        }
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("No update fields in '" + csv + "'");
+        }
+        return fields;
+    }
+}
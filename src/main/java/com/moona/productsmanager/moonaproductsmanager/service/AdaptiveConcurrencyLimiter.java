@@ -0,0 +1,172 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.moona.productsmanager.moonaproductsmanager.config.UpdateProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.function.Supplier;
+
+@Component
+public class AdaptiveConcurrencyLimiter {
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private static final int LATENCY_WINDOW = 512;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    // lower priority values are granted first, ties in arrival order
+    private final Queue<Permit> waiters = new PriorityQueue<>(Comparator.comparingInt((Permit permit) -> permit.priority)
+        .thenComparingLong(permit -> permit.sequence));
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private double limit;
+    private int inFlight;
+    private int samples;
+    private long sequence;
+    private long decreasedAt;
+
+    public AdaptiveConcurrencyLimiter(UpdateProperties updateProperties) {
+        UpdateProperties.Concurrency concurrency = updateProperties.getConcurrency();
+        this.minLimit = Math.max(1, concurrency.getMinLimit());
+        this.maxLimit = Math.max(minLimit, concurrency.getMaxLimit());
+        this.latencyThresholdNanos = Duration.ofMillis(Math.max(1, concurrency.getLatencyThresholdMs())).toNanos();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, concurrency.getInitialLimit()));
+    }
+
+    public <T> Mono<T> run(Supplier<Mono<T>> operation) {
+        return run(Integer.MAX_VALUE, operation);
+    }
+
+    public <T> Mono<T> run(int priority, Supplier<Mono<T>> operation) {
+        return Mono.usingWhen(Mono.<Permit>create(sink -> acquire(sink, priority)),
+            permit -> operation.get()
+                .doOnError(this::recordFailure),
+            permit -> Mono.fromRunnable(() -> release(permit, true)),
+            (permit, error) -> Mono.fromRunnable(() -> release(permit, false)),
+            permit -> Mono.fromRunnable(() -> release(permit, false)));
+    }
+
+    // fed per HTTP request by ApiClient, so rate-limit waits, multiplexer windows and batching never count as latency
+    void recordLatency(long nanos) {
+        synchronized (this) {
+            latencies[samples++ % LATENCY_WINDOW] = nanos;
+        }
+        if (nanos > latencyThresholdNanos) {
+            decrease("latencyMs=" + Duration.ofNanos(nanos).toMillis());
+        }
+    }
+
+    // called for every failed attempt, so the limit backs off while ApiClient is still retrying
+    void recordFailure(Throwable ex) {
+        if (ApiClient.isOverload(ex)) {
+            decrease("error=" + ex.getClass().getSimpleName());
+        }
+    }
+
+    public int maxLimit() {
+        return maxLimit;
+    }
+
+    public synchronized Stats stats() {
+        long[] window = Arrays.copyOf(latencies, Math.min(samples, LATENCY_WINDOW));
+        Arrays.sort(window);
+        return new Stats((int) limit, inFlight, percentile(window, 0.50), percentile(window, 0.95), percentile(window, 0.99));
+    }
+
+    private void acquire(MonoSink<Permit> sink, int priority) {
+        Permit permit = new Permit(sink, priority);
+        // a waiter cancelled before or while being granted must give its slot back
+        sink.onCancel(() -> release(permit, false));
+        boolean granted;
+        synchronized (this) {
+            permit.sequence = sequence++;
+            granted = inFlight < (int) limit;
+            if (granted) {
+                grant(permit);
+            } else {
+                waiters.add(permit);
+            }
+        }
+        if (granted) {
+            sink.success(permit);
+        }
+    }
+
+    private void release(Permit permit, boolean succeeded) {
+        List<Permit> ready = new ArrayList<>();
+        synchronized (this) {
+            if (permit.released) {
+                return;
+            }
+            permit.released = true;
+            if (!permit.granted) {
+                waiters.remove(permit);
+                return;
+            }
+            inFlight--;
+            if (succeeded) {
+                // additive increase: roughly one extra slot per full window of successful operations
+                limit = Math.min(maxLimit, limit + 1d / limit);
+            }
+            while (!waiters.isEmpty() && inFlight < (int) limit) {
+                Permit next = waiters.poll();
+                grant(next);
+                ready.add(next);
+            }
+        }
+        ready.forEach(next -> next.sink.success(next));
+    }
+
+    private void grant(Permit permit) {
+        permit.granted = true;
+        inFlight++;
+    }
+
+    private synchronized void decrease(String reason) {
+        // every request in flight during a slow spell reports it, so one spell may only halve the limit once
+        long now = System.nanoTime();
+        if (decreasedAt != 0 && now - decreasedAt < latencyThresholdNanos) {
+            return;
+        }
+        decreasedAt = now;
+        double previous = limit;
+        limit = Math.max(minLimit, limit / 2);
+        if ((int) previous != (int) limit) {
+            log.info("Concurrency limit {} -> {} ({})", (int) previous, (int) limit, reason);
+        }
+    }
+
+    private long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return Duration.ofNanos(sorted[Math.max(0, index)]).toMillis();
+    }
+
+    public record Stats(int limit, int inFlight, long p50Ms, long p95Ms, long p99Ms) {
+    }
+
+    private static final class Permit {
+        private final MonoSink<Permit> sink;
+        private final int priority;
+        private long sequence;
+        private boolean granted;
+        private boolean released;
+
+        Permit(MonoSink<Permit> sink, int priority) {
+            this.sink = sink;
+            this.priority = priority;
+        }
+    }
+}
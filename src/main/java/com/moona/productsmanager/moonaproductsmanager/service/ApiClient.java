@@ -1,14 +1,19 @@
 package com.moona.productsmanager.moonaproductsmanager.service;
 
+import com.moona.productsmanager.moonaproductsmanager.config.ApiProperties;
 import io.netty.handler.timeout.ReadTimeoutException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 import reactor.util.retry.RetryBackoffSpec;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.AbstractMap;
 import java.util.Map;
@@ -22,40 +27,86 @@ public class ApiClient {
 
     private static final Logger log = LoggerFactory.getLogger(ApiClient.class);
     private final WebClient webClient;
+    private final ApiProperties apiProperties;
+    private final ApiRateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
 
-    public ApiClient(WebClient apiWebClient) {
+    public ApiClient(WebClient apiWebClient, ApiProperties apiProperties, ApiRateLimiter rateLimiter,
+                     AdaptiveConcurrencyLimiter concurrencyLimiter) {
         this.webClient = apiWebClient;
+        this.apiProperties = apiProperties;
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
     }
 
     public Mono<String> mutation(String query, Map<String, Object> variables) {
+        return exchange(query, variables)
+                .map(body -> new String(body, StandardCharsets.UTF_8))
+                .doOnNext(body -> log.debug("GraphQL success body={}", body));
+    }
+
+    public Mono<byte[]> mutationBytes(String query, Map<String, Object> variables) {
+        return mutationBytes(query, variables, true);
+    }
+
+    // callers that can make the request cheaper on a timeout (smaller page) handle the timeout themselves
+    public Mono<byte[]> mutationBytes(String query, Map<String, Object> variables, boolean retryTimeouts) {
+        return exchange(query, variables, retryTimeouts)
+                .doOnNext(body -> log.debug("GraphQL success bytes={}", body.length));
+    }
+
+    private Mono<byte[]> exchange(String query, Map<String, Object> variables) {
+        return exchange(query, variables, true);
+    }
+
+    private Mono<byte[]> exchange(String query, Map<String, Object> variables, boolean retryTimeouts) {
+        // the permit is taken per subscription, so every retry waits for the bucket as well
+        return rateLimiter.acquire(query)
+                .then(Mono.defer(() -> send(query, variables)))
+                .retryWhen(retrySpec(retryTimeouts));
+    }
+
+    private Mono<byte[]> send(String query, Map<String, Object> variables) {
+        long startedAt = System.nanoTime();
         return webClient.post()
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(Map.of(
                         "query", query,
                         "variables", variables
                 ))
-                .exchangeToMono(resp -> resp.bodyToMono(String.class)
-                        .defaultIfEmpty("")
+                .exchangeToMono(resp -> DataBufferUtils.join(resp.bodyToFlux(DataBuffer.class), apiProperties.getMaxResponseBytes())
+                        .map(this::toBytes)
+                        .defaultIfEmpty(new byte[0])
                         .map(body -> new AbstractMap.SimpleEntry<>(resp.statusCode().value(), body)))
                 .flatMap(entry -> {
                     int status = entry.getKey();
-                    String body = entry.getValue();
+                    byte[] body = entry.getValue();
                     if (status >= 400) {
-                        log.error("GraphQL error status={} body={}", status, body);
+                        log.error("GraphQL error status={} body={}", status, new String(body, StandardCharsets.UTF_8));
                         return Mono.error(new GraphqlRequestException(status));
                     }
-                    log.debug("GraphQL success status={} body={}", status, body);
+                    concurrencyLimiter.recordLatency(System.nanoTime() - startedAt);
                     return Mono.just(body);
                 })
                 .timeout(Duration.ofSeconds(30))
-                .retryWhen(retrySpec());
+                .doOnError(concurrencyLimiter::recordFailure);
     }
 
-    private RetryBackoffSpec retrySpec() {
+    private byte[] toBytes(DataBuffer buffer) {
+        try {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            return bytes;
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private RetryBackoffSpec retrySpec(boolean retryTimeouts) {
         return Retry.backoff(5, Duration.ofSeconds(2))
                 .maxBackoff(Duration.ofSeconds(20))
                 .jitter(0.5)
-                .filter(this::isRetriable)
+                .filter(ex -> isRetriable(ex) && (retryTimeouts || !isTimeout(ex)))
                 .doBeforeRetry(signal -> log.warn(
                         "Retrying GraphQL call attempt={}",
                         signal.totalRetries() + 1
@@ -64,7 +115,24 @@ public class ApiClient {
 
     private boolean isRetriable(Throwable ex) {
         if (ex instanceof GraphqlRequestException gre) {
-            return gre.status >= 500; // retry only server-side GraphQL errors
+            return gre.status >= 500 || gre.status == 429; // retry server-side errors and throttling
+        }
+        return isTimeout(ex);
+    }
+
+    static boolean isOverload(Throwable ex) {
+        if (Exceptions.isRetryExhausted(ex) && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        if (ex instanceof GraphqlRequestException gre) {
+            return gre.status >= 500 || gre.status == 429;
+        }
+        return isTimeout(ex);
+    }
+
+    static boolean isTimeout(Throwable ex) {
+        if (Exceptions.isRetryExhausted(ex) && ex.getCause() != null) {
+            ex = ex.getCause();
         }
         return ex instanceof ReadTimeoutException
                 || ex instanceof TimeoutException
@@ -0,0 +1,83 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.moona.productsmanager.moonaproductsmanager.config.ApiProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Component
+public class ApiRateLimiter {
+    private static final Logger log = LoggerFactory.getLogger(ApiRateLimiter.class);
+
+    private static final Pattern OPERATION_NAME = Pattern.compile("^\\s*(?:query|mutation)\\s+(\\w+)");
+    private static final long NANOS_PER_SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final boolean enabled;
+    private final double tokensPerNano;
+    private final double burst;
+    private final Map<String, Integer> operationWeights;
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+
+    public ApiRateLimiter(ApiProperties apiProperties) {
+        ApiProperties.RateLimit rateLimit = apiProperties.getRateLimit();
+        this.enabled = rateLimit.isEnabled() && rateLimit.getRequestsPerSecond() > 0;
+        this.tokensPerNano = rateLimit.getRequestsPerSecond() / NANOS_PER_SECOND;
+        this.burst = Math.max(1, rateLimit.getBurst());
+        this.operationWeights = Map.copyOf(rateLimit.getOperationWeights());
+        this.tokens = burst;
+    }
+
+    public Mono<Void> acquire(String query) {
+        return acquire(weight(query));
+    }
+
+    public Mono<Void> acquire(int permits) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            int reserved = Math.max(1, permits);
+            long waitNanos = reserve(reserved);
+            if (waitNanos <= 0) {
+                return Mono.empty();
+            }
+            log.debug("Rate limited API call permits={} waitMs={}", permits, Duration.ofNanos(waitNanos).toMillis());
+            // a caller that gives up while waiting never sends its request, so its tokens go back to the bucket
+            return Mono.delay(Duration.ofNanos(waitNanos)).then()
+                .doOnCancel(() -> refund(reserved));
+        });
+    }
+
+    int weight(String query) {
+        if (query == null) {
+            return 1;
+        }
+        Matcher matcher = OPERATION_NAME.matcher(query);
+        return matcher.find() ? Math.max(1, operationWeights.getOrDefault(matcher.group(1), 1)) : 1;
+    }
+
+    // tokens may go negative: each caller reserves its share up front and waits until the bucket has refilled past it
+    synchronized long reserve(int permits) {
+        refill();
+        tokens -= Math.min(permits, burst);
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+
+    synchronized void refund(int permits) {
+        refill();
+        tokens = Math.min(burst, tokens + Math.min(permits, burst));
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,71 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.moona.productsmanager.moonaproductsmanager.model.CatalogSnapshot;
+import com.moona.productsmanager.moonaproductsmanager.model.Product;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public final class CatalogIndex {
+
+    private final CatalogSnapshot snapshot;
+    private final Map<String, Product> byId = new HashMap<>();
+    private final Map<String, Product> bySku = new HashMap<>();
+    private final Map<String, List<Product>> byCategory = new HashMap<>();
+
+    CatalogIndex(CatalogSnapshot snapshot) {
+        this.snapshot = snapshot;
+        for (Product product : snapshot.products()) {
+            if (product.getId() != null) {
+                byId.put(product.getId(), product);
+            }
+            if (product.getSku() != null) {
+                bySku.put(product.getSku(), product);
+            }
+            if (product.getCategoryId() != null) {
+                byCategory.computeIfAbsent(product.getCategoryId(), key -> new ArrayList<>()).add(product);
+            }
+        }
+    }
+
+    // the index is shared between jobs, so only copies leave it
+    public List<Product> products() {
+        return snapshot.products().stream().map(Product::new).toList();
+    }
+
+    public int size() {
+        return snapshot.products().size();
+    }
+
+    public Optional<Product> byId(String id) {
+        return Optional.ofNullable(byId.get(id)).map(Product::new);
+    }
+
+    public Optional<Product> bySku(String sku) {
+        return Optional.ofNullable(bySku.get(sku)).map(Product::new);
+    }
+
+    public List<Product> byCategories(Collection<String> categoryIds) {
+        List<Product> products = new ArrayList<>();
+        categoryIds.forEach(categoryId -> byCategory.getOrDefault(categoryId, List.of())
+            .forEach(product -> products.add(new Product(product))));
+        return products;
+    }
+
+    public OffsetDateTime watermark() {
+        return snapshot.watermark();
+    }
+
+    public OffsetDateTime fullSyncAt() {
+        return snapshot.fullSyncAt();
+    }
+
+    public OffsetDateTime syncedAt() {
+        return snapshot.syncedAt();
+    }
+}
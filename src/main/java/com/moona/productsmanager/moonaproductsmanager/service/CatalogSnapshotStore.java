@@ -0,0 +1,225 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.deser.std.FromStringDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.moona.productsmanager.moonaproductsmanager.config.SnapshotProperties;
+import com.moona.productsmanager.moonaproductsmanager.model.CatalogSnapshot;
+import com.moona.productsmanager.moonaproductsmanager.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Component
+public class CatalogSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshotStore.class);
+
+    private final SnapshotProperties snapshotProperties;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new SimpleModule()
+            .addSerializer(OffsetDateTime.class, ToStringSerializer.instance)
+            .addDeserializer(OffsetDateTime.class, new OffsetDateTimeDeserializer()))
+        .setDefaultPropertyInclusion(JsonInclude.Include.NON_NULL)
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final ObjectWriter productWriter = objectMapper.writerFor(Product.class)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    private CatalogIndex cached;
+    private FileTime cachedModifiedAt;
+
+    public CatalogSnapshotStore(SnapshotProperties snapshotProperties) {
+        this.snapshotProperties = snapshotProperties;
+    }
+
+    public synchronized Optional<CatalogIndex> current() {
+        Path path = snapshotPath();
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try {
+            FileTime modifiedAt = Files.getLastModifiedTime(path);
+            if (cached != null && modifiedAt.equals(cachedModifiedAt)) {
+                return Optional.of(cached);
+            }
+            CatalogSnapshot snapshot;
+            try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                snapshot = objectMapper.readValue(in, CatalogSnapshot.class);
+            }
+            cached = new CatalogIndex(snapshot);
+            cachedModifiedAt = modifiedAt;
+            log.info("Loaded catalog snapshot {} (products={}, watermark={}, syncedAt={})", path, snapshot.products().size(), snapshot.watermark(), snapshot.syncedAt());
+            return Optional.of(cached);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable catalog snapshot {}: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public Optional<CatalogIndex> fresh() {
+        int maxAgeMinutes = snapshotProperties.getMaxAgeMinutes();
+        if (maxAgeMinutes <= 0) {
+            return Optional.empty();
+        }
+        OffsetDateTime threshold = OffsetDateTime.now(ZoneOffset.UTC).minusMinutes(maxAgeMinutes);
+        OffsetDateTime staleSince = staleSince();
+        // incremental merges stamp syncedAt too, so only a full download vouches for the whole snapshot
+        return current().filter(index -> index.fullSyncAt() != null && index.fullSyncAt().isAfter(threshold)
+            && (staleSince == null || index.fullSyncAt().isAfter(staleSince)));
+    }
+
+    // called after the app writes to Saleor; the marker is a file so the next CLI run sees it as well
+    public void markStale() {
+        Path marker = staleMarkerPath();
+        try {
+            Path parent = marker.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.writeString(marker, OffsetDateTime.now(ZoneOffset.UTC).toString());
+        } catch (IOException e) {
+            log.warn("Failed to mark catalog snapshot stale {}: {}", marker, e.getMessage());
+        }
+    }
+
+    private OffsetDateTime staleSince() {
+        Path marker = staleMarkerPath();
+        if (!Files.isRegularFile(marker)) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(Files.readString(marker).trim());
+        } catch (IOException | DateTimeParseException e) {
+            log.warn("Treating catalog snapshot as stale, unreadable marker {}: {}", marker, e.getMessage());
+            return OffsetDateTime.now(ZoneOffset.UTC);
+        }
+    }
+
+    public void save(CatalogSnapshot snapshot) throws IOException {
+        try (SnapshotWriter writer = openWriter()) {
+            snapshot.products().forEach(writer::append);
+            writer.commit(snapshot.watermark(), snapshot.fullSyncAt());
+        }
+    }
+
+    public SnapshotWriter openWriter() throws IOException {
+        return new SnapshotWriter(snapshotPath());
+    }
+
+    private synchronized void invalidate() {
+        cached = null;
+        cachedModifiedAt = null;
+    }
+
+    private Path snapshotPath() {
+        return Path.of(snapshotProperties.getPath());
+    }
+
+    private Path staleMarkerPath() {
+        Path path = snapshotPath();
+        return path.resolveSibling(path.getFileName() + ".stale");
+    }
+
+    public final class SnapshotWriter implements Closeable {
+        private final Path target;
+        private final Path tmp;
+        private final JsonGenerator generator;
+        private OffsetDateTime watermark;
+        private int count;
+        private boolean committed;
+
+        private SnapshotWriter(Path target) throws IOException {
+            this.target = target;
+            Path parent = target.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            this.generator = objectMapper.getFactory()
+                .createGenerator(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp))));
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("products");
+        }
+
+        public void append(Product product) {
+            try {
+                productWriter.writeValue(generator, product);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count++;
+            if (product.getUpdatedAt() != null && (watermark == null || product.getUpdatedAt().isAfter(watermark))) {
+                watermark = product.getUpdatedAt();
+            }
+        }
+
+        public void commit(OffsetDateTime explicitWatermark, OffsetDateTime fullSyncAt) throws IOException {
+            OffsetDateTime effectiveWatermark = explicitWatermark != null ? explicitWatermark : watermark;
+            generator.writeEndArray();
+            if (effectiveWatermark != null) {
+                generator.writeStringField("watermark", effectiveWatermark.toString());
+            }
+            if (fullSyncAt != null) {
+                generator.writeStringField("fullSyncAt", fullSyncAt.toString());
+            }
+            generator.writeStringField("syncedAt", OffsetDateTime.now(ZoneOffset.UTC).toString());
+            generator.writeEndObject();
+            generator.close();
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            invalidate();
+            log.info("Saved catalog snapshot {} (products={}, watermark={})", target, count, effectiveWatermark);
+        }
+
+        @Override
+        public void close() {
+            if (committed) {
+                return;
+            }
+            try {
+                generator.close();
+                Files.deleteIfExists(tmp);
+            } catch (IOException e) {
+                log.warn("Failed to discard partial catalog snapshot {}: {}", tmp, e.getMessage());
+            }
+        }
+    }
+
+    private static final class OffsetDateTimeDeserializer extends FromStringDeserializer<OffsetDateTime> {
+
+        private static final long serialVersionUID = 1L;
+
+        OffsetDateTimeDeserializer() {
+            super(OffsetDateTime.class);
+        }
+
+        @Override
+        protected OffsetDateTime _deserialize(String value, DeserializationContext ctxt) {
+            return OffsetDateTime.parse(value);
+        }
+    }
+}
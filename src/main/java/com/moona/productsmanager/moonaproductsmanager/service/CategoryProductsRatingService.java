@@ -1,5 +1,6 @@
 package com.moona.productsmanager.moonaproductsmanager.service;
 
+import com.moona.productsmanager.moonaproductsmanager.config.UpdateProperties;
 import com.moona.productsmanager.moonaproductsmanager.model.Product;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -7,7 +8,9 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class CategoryProductsRatingService {
@@ -18,15 +21,18 @@ public class CategoryProductsRatingService {
     private final CategoryRatingAssigner categoryRatingAssigner;
     private final ExcelWriter excelWriter;
     private final ProductsUpdateService productsUpdateService;
+    private final UpdateProperties updateProperties;
 
     public CategoryProductsRatingService(ProductsExportService productsExportService,
                                          CategoryRatingAssigner categoryRatingAssigner,
                                          ExcelWriter excelWriter,
-                                         ProductsUpdateService productsUpdateService) {
+                                         ProductsUpdateService productsUpdateService,
+                                         UpdateProperties updateProperties) {
         this.productsExportService = productsExportService;
         this.categoryRatingAssigner = categoryRatingAssigner;
         this.excelWriter = excelWriter;
         this.productsUpdateService = productsUpdateService;
+        this.updateProperties = updateProperties;
     }
 
     public Mono<String> exportCategoryWithRatings(String categoryId, double minRating, double maxRating,
@@ -38,9 +44,20 @@ public class CategoryProductsRatingService {
                                                   String createdAfterIso, String updatedBeforeIso, Boolean published) {
         log.info("Starting category rating export (categoryId={}, minRating={}, maxRating={}, createdAfter={}, updatedBefore={}, published={})",
             categoryId, minRating, maxRating, createdAfterIso, updatedBeforeIso, published);
-        return productsExportService.fetchAllProducts(createdAfterIso, updatedBeforeIso, categoryId, published)
-            .map(products -> categoryRatingAssigner.sortAndAssignRatings(products, minRating, maxRating))
-            .flatMap(sorted -> productsUpdateService.updateRatings(sorted).then(writeExport(sorted, categoryId)));
+        return productsExportService.streamProducts(ProductProjection.RATING, createdAfterIso, updatedBeforeIso, categoryId, published)
+            .collectList()
+            .flatMap(products -> {
+                // the assigner overwrites ratings in place, so keep the fetched ones for the sync diff
+                Map<String, Double> currentRatings = new HashMap<>();
+                products.stream()
+                    .filter(p -> p.getId() != null && p.getRating() != null)
+                    .forEach(p -> currentRatings.put(p.getId(), p.getRating()));
+                List<Product> sorted = categoryRatingAssigner.sortAndAssignRatings(products, minRating, maxRating);
+                Mono<Void> write = updateProperties.isRatingSyncEnabled()
+                    ? productsUpdateService.syncRatings(sorted, currentRatings).then()
+                    : productsUpdateService.updateRatings(sorted);
+                return write.then(writeExport(sorted, categoryId));
+            });
     }
 
     public Mono<String> exportCategoryWithRatings(String categoryId, double minRating, double maxRating) {
@@ -3,12 +3,14 @@ package com.moona.productsmanager.moonaproductsmanager.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.moona.productsmanager.moonaproductsmanager.config.ErpProperties;
 import com.moona.productsmanager.moonaproductsmanager.model.Product;
+import com.moona.productsmanager.moonaproductsmanager.model.UpdateField;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class ErpIngestService {
@@ -18,19 +20,26 @@ public class ErpIngestService {
     private final ErpProductMapper erpProductMapper;
     private final ProductsUpdateService productsUpdateService;
     private final ErpProperties erpProperties;
+    private final ProductWriteBehindQueue writeBehindQueue;
 
     public ErpIngestService(ErpReportClient erpReportClient,
                             ErpProductMapper erpProductMapper,
                             ProductsUpdateService productsUpdateService,
-                            ErpProperties erpProperties) {
+                            ErpProperties erpProperties,
+                            ProductWriteBehindQueue writeBehindQueue) {
         this.erpReportClient = erpReportClient;
         this.erpProductMapper = erpProductMapper;
         this.productsUpdateService = productsUpdateService;
         this.erpProperties = erpProperties;
+        this.writeBehindQueue = writeBehindQueue;
     }
 
     public Mono<String> importFromErp(String reportName, boolean dryRun) {
-        log.info("ERP ingest started (report={}, dryRun={})", reportName, dryRun);
+        return importFromErp(reportName, dryRun, null, ProductsUpdateService.UpdateMode.SKIP_PRODUCT_MASTER_DATA.fields());
+    }
+
+    public Mono<String> importFromErp(String reportName, boolean dryRun, String resumeRunId, Set<UpdateField> fields) {
+        log.info("ERP ingest started (report={}, dryRun={}, resume={}, fields={})", reportName, dryRun, resumeRunId, fields);
         return erpReportClient.login(erpProperties)
             .flatMap(loginResp -> erpReportClient.fetchReport(erpProperties, reportName))
             .flatMap(rawReport -> {
@@ -45,7 +54,11 @@ public class ErpIngestService {
                 if (dryRun) {
                     return Mono.just("Dry run: mapped " + products.size() + " products");
                 }
-                return productsUpdateService.upsertProducts(products, ProductsUpdateService.UpdateMode.SKIP_PRODUCT_MASTER_DATA)
+                // a resumed run must reuse its own journal, so it bypasses the write-behind queue
+                Mono<Void> write = resumeRunId == null
+                    ? writeBehindQueue.submit(products, fields)
+                    : productsUpdateService.upsertProducts(products, fields, resumeRunId);
+                return write
                     .thenReturn("Ingested " + products.size() + " products");
             });
     }
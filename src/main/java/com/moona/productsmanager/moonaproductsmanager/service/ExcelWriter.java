@@ -3,10 +3,13 @@ package com.moona.productsmanager.moonaproductsmanager.service;
 import com.moona.productsmanager.moonaproductsmanager.model.Product;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Component;
 
+import java.io.Closeable;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
@@ -18,31 +21,17 @@ import java.util.List;
 @Component
 public class ExcelWriter {
 
-    public void exportProducts(List<Product> products) throws IOException {
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet("Products");
-
-        List<Object> headers = Arrays.asList(ExcelReader.ID_COLUMN, ExcelReader.SKU_COLUMN, ExcelReader.NAME_COLUMN,
-            ExcelReader.COST_PRICE_COLUMN, ExcelReader.PRICE_COLUMN, ExcelReader.CATEGORY_ID_COLUMN,
-            ExcelReader.CATEGORY_NAME_COLUMN, ExcelReader.PARENT_CATEGORY_NAME_COLUMN, ExcelReader.RATING_COLUMN,
-            ExcelReader.AVAILABLE_QUANTITY_COLUMN, ExcelReader.MIN_AMOUNT_ATTRIBUTE_COLUMN,
-            ExcelReader.WEIGHTED_ATTRIBUTE_COLUMN, ExcelReader.WEIGHT_COLUMN, ExcelReader.TRACK_INVENTORY_COLUMN,
-            ExcelReader.PUBLISHED_COLUMN, ExcelReader.IMAGE_COLUMN);
-        writeRow(headers, sheet.createRow(0));
+    private static final int STREAMING_WINDOW_ROWS = 200;
 
-        int rowIndex = 0;
-        for (Product product : products) {
-            Row row = sheet.createRow(++rowIndex);
-            writeRow(getProductRecords(product), row);
+    public void exportProducts(List<Product> products) throws IOException {
+        try (ProductsSheet sheet = openProductsSheet()) {
+            products.forEach(sheet::append);
+            sheet.save();
         }
+    }
 
-        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
-        String dateString = format.format(new Date());
-        String fileName = "MoonaProducts-" + dateString + ".xlsx";
-
-        try (FileOutputStream outputStream = new FileOutputStream(fileName)) {
-            workbook.write(outputStream);
-        }
+    public ProductsSheet openProductsSheet() {
+        return new ProductsSheet();
     }
 
     public void exportRefillProducts(String fileName, List<Product> products) throws IOException {
@@ -122,5 +111,43 @@ public class ExcelWriter {
             }
         }
     }
-}
 
+    public final class ProductsSheet implements Closeable {
+        private final SXSSFWorkbook workbook = new SXSSFWorkbook(STREAMING_WINDOW_ROWS);
+        private final Sheet sheet = workbook.createSheet("Products");
+        private int rowIndex = 0;
+
+        private ProductsSheet() {
+            List<Object> headers = Arrays.asList(ExcelReader.ID_COLUMN, ExcelReader.SKU_COLUMN, ExcelReader.NAME_COLUMN,
+                ExcelReader.COST_PRICE_COLUMN, ExcelReader.PRICE_COLUMN, ExcelReader.CATEGORY_ID_COLUMN,
+                ExcelReader.CATEGORY_NAME_COLUMN, ExcelReader.PARENT_CATEGORY_NAME_COLUMN, ExcelReader.RATING_COLUMN,
+                ExcelReader.AVAILABLE_QUANTITY_COLUMN, ExcelReader.MIN_AMOUNT_ATTRIBUTE_COLUMN,
+                ExcelReader.WEIGHTED_ATTRIBUTE_COLUMN, ExcelReader.WEIGHT_COLUMN, ExcelReader.TRACK_INVENTORY_COLUMN,
+                ExcelReader.PUBLISHED_COLUMN, ExcelReader.IMAGE_COLUMN);
+            writeRow(headers, sheet.createRow(0));
+        }
+
+        public void append(Product product) {
+            writeRow(getProductRecords(product), sheet.createRow(++rowIndex));
+        }
+
+        public int size() {
+            return rowIndex;
+        }
+
+        public void save() throws IOException {
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+            String dateString = format.format(new Date());
+            String fileName = "MoonaProducts-" + dateString + ".xlsx";
+
+            try (FileOutputStream outputStream = new FileOutputStream(fileName)) {
+                workbook.write(outputStream);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            workbook.close();
+        }
+    }
+}
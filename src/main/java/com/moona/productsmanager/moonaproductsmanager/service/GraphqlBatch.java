@@ -0,0 +1,62 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class GraphqlBatch {
+
+    private final String operation;
+    private final String name;
+    private final List<String> declarations = new ArrayList<>();
+    private final StringBuilder selections = new StringBuilder();
+    private final Map<String, Object> variables = new HashMap<>();
+    private int size;
+
+    public GraphqlBatch(String operation, String name) {
+        this.operation = operation;
+        this.name = name;
+    }
+
+    public String add(String field, Map<String, Argument> arguments, String selection) {
+        String alias = "op" + (++size);
+        List<String> bound = new ArrayList<>();
+        arguments.forEach((argument, value) -> {
+            String variable = alias + "_" + argument;
+            declarations.add("$" + variable + ": " + value.type());
+            variables.put(variable, value.value());
+            bound.add(argument + ": $" + variable);
+        });
+        selections.append("  ").append(alias).append(": ").append(field);
+        if (!bound.isEmpty()) {
+            selections.append('(').append(String.join(", ", bound)).append(')');
+        }
+        selections.append(" { ").append(selection).append(" }\n");
+        return alias;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String document() {
+        String signature = declarations.isEmpty() ? "" : "(" + String.join(", ", declarations) + ")";
+        return operation + " " + name + signature + " {\n" + selections + "}";
+    }
+
+    public Map<String, Object> variables() {
+        return variables;
+    }
+
+    public static Argument argument(String type, Object value) {
+        return new Argument(type, value);
+    }
+
+    public record Argument(String type, Object value) {
+    }
+}
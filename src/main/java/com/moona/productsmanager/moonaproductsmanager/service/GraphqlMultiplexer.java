@@ -0,0 +1,138 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moona.productsmanager.moonaproductsmanager.config.ApiProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Component
+public class GraphqlMultiplexer implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(GraphqlMultiplexer.class);
+
+    private final ApiClient apiClient;
+    private final ObjectMapper objectMapper;
+    private final int maxBatchSize;
+    private final Duration window;
+    private final int concurrency;
+    private final Duration operationTimeout;
+    private volatile Sinks.Many<PendingOperation> pending;
+    private volatile Disposable dispatcher;
+    private volatile boolean stopped;
+
+    public GraphqlMultiplexer(ApiClient apiClient, ObjectMapper objectMapper, ApiProperties apiProperties) {
+        this.apiClient = apiClient;
+        this.objectMapper = objectMapper;
+        ApiProperties.Multiplex multiplex = apiProperties.getMultiplex();
+        this.maxBatchSize = multiplex.isEnabled() ? Math.max(1, multiplex.getMaxBatchSize()) : 1;
+        this.window = Duration.ofMillis(Math.max(1, multiplex.getWindowMs()));
+        this.concurrency = Math.max(1, multiplex.getConcurrency());
+        this.operationTimeout = Duration.ofMillis(Math.max(1, multiplex.getOperationTimeoutMs()));
+        start();
+    }
+
+    private synchronized void start() {
+        if (stopped) {
+            return;
+        }
+        Sinks.Many<PendingOperation> sink = Sinks.many().unicast().onBackpressureBuffer();
+        pending = sink;
+        // fair backpressure keeps full buffers queued while both dispatch slots are busy instead of overflowing
+        dispatcher = sink.asFlux()
+            .bufferTimeout(maxBatchSize, window, true)
+            .flatMap(this::dispatch, concurrency)
+            .subscribe(null, ex -> {
+                log.error("Multiplexed GraphQL dispatcher failed, restarting it", ex);
+                start();
+            });
+    }
+
+    public Mono<JsonNode> mutate(String field, Map<String, GraphqlBatch.Argument> arguments, String selection) {
+        return Mono.<JsonNode>create(sink -> {
+                PendingOperation operation = new PendingOperation(field, arguments, selection, sink, new AtomicBoolean());
+                sink.onCancel(() -> operation.cancelled().set(true));
+                pending.emitNext(operation, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+            })
+            // an operation lost with a failed dispatcher must not leave its caller waiting forever
+            .timeout(operationTimeout);
+    }
+
+    private Mono<Void> dispatch(List<PendingOperation> buffered) {
+        List<PendingOperation> operations = buffered.stream().filter(operation -> !operation.cancelled().get()).toList();
+        if (operations.isEmpty()) {
+            return Mono.empty();
+        }
+        GraphqlBatch batch = new GraphqlBatch("mutation", "Multiplexed");
+        Map<String, PendingOperation> byAlias = new HashMap<>();
+        operations.forEach(operation -> byAlias.put(batch.add(operation.field(), operation.arguments(), operation.selection()), operation));
+        log.debug("Dispatching {} multiplexed GraphQL operations", operations.size());
+        return apiClient.mutation(batch.document(), batch.variables())
+            .doOnNext(body -> complete(body, byAlias))
+            .doOnError(ex -> operations.forEach(operation -> operation.sink().error(ex)))
+            .onErrorResume(ex -> Mono.empty())
+            .then();
+    }
+
+    private void complete(String body, Map<String, PendingOperation> byAlias) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(body);
+        } catch (Exception e) {
+            byAlias.values().forEach(operation -> operation.sink().error(e));
+            return;
+        }
+        JsonNode errors = root.path("errors");
+        if (errors.isArray()) {
+            errors.forEach(error -> log.warn("GraphQL error in multiplexed request path={} message={}", error.path("path"), error.path("message").asText(null)));
+        }
+        JsonNode data = root.path("data");
+        if (!data.isObject()) {
+            // a document-level rejection applied none of the operations
+            IllegalStateException rejected = new IllegalStateException("Multiplexed request rejected: " + errors);
+            byAlias.values().forEach(operation -> operation.sink().error(rejected));
+            return;
+        }
+        byAlias.forEach((alias, operation) -> {
+            JsonNode result = data.path(alias);
+            if (result.isMissingNode() || result.isNull()) {
+                operation.sink().error(new IllegalStateException("Multiplexed " + operation.field() + " returned no result: " + errorsFor(alias, errors)));
+            } else {
+                operation.sink().success(result);
+            }
+        });
+    }
+
+    private List<String> errorsFor(String alias, JsonNode errors) {
+        List<String> messages = new ArrayList<>();
+        for (JsonNode error : errors) {
+            if (alias.equals(error.path("path").path(0).asText(null))) {
+                messages.add(error.path("message").asText(null));
+            }
+        }
+        return messages;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        stopped = true;
+        pending.tryEmitComplete();
+        dispatcher.dispose();
+    }
+
+    private record PendingOperation(String field, Map<String, GraphqlBatch.Argument> arguments, String selection, MonoSink<JsonNode> sink,
+                                    AtomicBoolean cancelled) {
+    }
+}
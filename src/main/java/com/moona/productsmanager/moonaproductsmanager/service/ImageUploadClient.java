@@ -20,11 +20,14 @@ public class ImageUploadClient {
     private final WebClient apiWebClient;
     private final FileProperties fileProperties;
     private final ApiProperties apiProperties;
+    private final ApiRateLimiter rateLimiter;
 
-    public ImageUploadClient(WebClient apiWebClient, FileProperties fileProperties, ApiProperties apiProperties) {
+    public ImageUploadClient(WebClient apiWebClient, FileProperties fileProperties, ApiProperties apiProperties,
+                             ApiRateLimiter rateLimiter) {
         this.apiWebClient = apiWebClient;
         this.fileProperties = fileProperties;
         this.apiProperties = apiProperties;
+        this.rateLimiter = rateLimiter;
     }
 
     public Mono<String> uploadImage(Map<String, Object> operations, Map<String, Object> mapField, File imageFile) {
@@ -43,11 +46,12 @@ public class ImageUploadClient {
 
         MultiValueMap<String, org.springframework.http.HttpEntity<?>> multipartBody = builder.build();
 
-        return apiWebClient.post()
-            .uri(apiProperties.getBaseUrl())
-            .body(BodyInserters.fromMultipartData(multipartBody))
-            .retrieve()
-            .bodyToMono(String.class);
+        return rateLimiter.acquire(String.valueOf(operations.get("query")))
+            .then(Mono.defer(() -> apiWebClient.post()
+                .uri(apiProperties.getBaseUrl())
+                .body(BodyInserters.fromMultipartData(multipartBody))
+                .retrieve()
+                .bodyToMono(String.class)));
     }
 }
 
@@ -0,0 +1,72 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.moona.productsmanager.moonaproductsmanager.config.UpdateProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+@Component
+public class PriorityLaneScheduler implements DisposableBean {
+
+    // declared in drain order: storefront-visible corrections first, new products last
+    public enum Lane {STOCK, PRICE, PUBLISH, MASTER_DATA, CREATE}
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final Map<Lane, Sinks.Many<PendingWork<?>>> queues = new EnumMap<>(Lane.class);
+    private final Disposable.Composite dispatchers = Disposables.composite();
+
+    public PriorityLaneScheduler(AdaptiveConcurrencyLimiter concurrencyLimiter, UpdateProperties updateProperties) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        UpdateProperties.Lanes lanes = updateProperties.getLanes();
+        for (Lane lane : Lane.values()) {
+            int budget = Math.max(1, switch (lane) {
+                case STOCK -> lanes.getStock();
+                case PRICE -> lanes.getPrice();
+                case PUBLISH -> lanes.getPublish();
+                case MASTER_DATA -> lanes.getMasterData();
+                case CREATE -> lanes.getCreate();
+            });
+            Sinks.Many<PendingWork<?>> queue = Sinks.many().unicast().onBackpressureBuffer();
+            queues.put(lane, queue);
+            dispatchers.add(queue.asFlux()
+                .flatMap(work -> execute(lane, work), budget)
+                .subscribe());
+        }
+    }
+
+    public <T> Mono<T> submit(Lane lane, Supplier<Mono<T>> operation) {
+        return Mono.create(sink -> {
+            Sinks.One<Boolean> cancelled = Sinks.one();
+            sink.onCancel(() -> cancelled.tryEmitValue(true));
+            queues.get(lane).emitNext(new PendingWork<>(operation, sink, cancelled),
+                Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+        });
+    }
+
+    private <T> Mono<Void> execute(Lane lane, PendingWork<T> work) {
+        return concurrencyLimiter.run(lane.ordinal(), work.operation())
+            .takeUntilOther(work.cancelled().asMono())
+            .doOnSuccess(work.sink()::success)
+            .doOnError(work.sink()::error)
+            .onErrorResume(ex -> Mono.empty())
+            .then();
+    }
+
+    @Override
+    public void destroy() {
+        queues.values().forEach(Sinks.Many::tryEmitComplete);
+        dispatchers.dispose();
+    }
+
+    private record PendingWork<T>(Supplier<Mono<T>> operation, MonoSink<T> sink, Sinks.One<Boolean> cancelled) {
+    }
+}
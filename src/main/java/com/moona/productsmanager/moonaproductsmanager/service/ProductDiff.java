@@ -0,0 +1,106 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.moona.productsmanager.moonaproductsmanager.model.Product;
+import com.moona.productsmanager.moonaproductsmanager.model.UpdateField;
+import com.moona.productsmanager.moonaproductsmanager.util.Helper;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+@Component
+public class ProductDiff {
+
+    private static final double AMOUNT_TOLERANCE = 0.0001d;
+
+    private final Helper helper;
+
+    public ProductDiff(Helper helper) {
+        this.helper = helper;
+    }
+
+    public enum Change {PRODUCT, PRODUCT_LISTING, VARIANT_LISTING, STOCKS}
+
+    public Set<Change> applicable(Product product, Set<UpdateField> fields) {
+        Set<Change> changes = EnumSet.noneOf(Change.class);
+        if (!Collections.disjoint(fields, UpdateField.PRODUCT_FIELDS)) {
+            changes.add(Change.PRODUCT);
+        }
+        if (fields.contains(UpdateField.PUBLISH) && product.getChannelId() != null) {
+            changes.add(Change.PRODUCT_LISTING);
+        }
+        if (fields.contains(UpdateField.PRICE) && product.getChannelId() != null && product.getPrice() != null) {
+            changes.add(Change.VARIANT_LISTING);
+        }
+        if (fields.contains(UpdateField.STOCK) && product.getWarehouseId() != null) {
+            changes.add(Change.STOCKS);
+        }
+        return changes;
+    }
+
+    public Set<Change> changed(Product product, VariantState current, Set<Change> applicable, Set<UpdateField> fields) {
+        if (current == null) {
+            return applicable;
+        }
+        Set<Change> changes = EnumSet.noneOf(Change.class);
+        if (applicable.contains(Change.PRODUCT) && productChanged(product, current, fields)) {
+            changes.add(Change.PRODUCT);
+        }
+        if (applicable.contains(Change.PRODUCT_LISTING)
+            && !Objects.equals(product.getPublished(), current.publishedByChannel().get(product.getChannelId()))) {
+            changes.add(Change.PRODUCT_LISTING);
+        }
+        if (applicable.contains(Change.VARIANT_LISTING)
+            && (!sameAmount(product.getPrice(), current.priceByChannel().get(product.getChannelId()))
+                || !sameAmount(product.getCostPrice(), current.costPriceByChannel().get(product.getChannelId())))) {
+            changes.add(Change.VARIANT_LISTING);
+        }
+        if (applicable.contains(Change.STOCKS)
+            && !Objects.equals(product.getAvailableQuantity(), current.stockByWarehouse().get(product.getWarehouseId()))) {
+            changes.add(Change.STOCKS);
+        }
+        return changes;
+    }
+
+    private boolean productChanged(Product product, VariantState current, Set<UpdateField> fields) {
+        if (fields.contains(UpdateField.MASTER)) {
+            if (product.getName() != null && !product.getName().equals(current.name())) {
+                return true;
+            }
+            if (product.getCategoryId() != null && !product.getCategoryId().equals(current.categoryId())) {
+                return true;
+            }
+            if (product.getWeight() != null && !sameAmount(product.getWeight(), current.weight())) {
+                return true;
+            }
+        }
+        if (fields.contains(UpdateField.RATING) && product.getRating() != null && !sameAmount(product.getRating(), current.rating())) {
+            return true;
+        }
+        if (!fields.contains(UpdateField.ATTRIBUTES)) {
+            return false;
+        }
+        for (Map<String, Object> attribute : helper.buildProductAttributes(product)) {
+            String attributeId = (String) attribute.get("id");
+            if (attribute.containsKey("boolean")) {
+                if (!Objects.equals(attribute.get("boolean"), current.attributeBooleans().get(attributeId))) {
+                    return true;
+                }
+            } else if (!Objects.equals(attribute.get("values"), current.attributeValues().getOrDefault(attributeId, List.of()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean sameAmount(Double incoming, Double current) {
+        if (incoming == null || current == null) {
+            return incoming == null && current == null;
+        }
+        return Math.abs(incoming - current) < AMOUNT_TOLERANCE;
+    }
+}
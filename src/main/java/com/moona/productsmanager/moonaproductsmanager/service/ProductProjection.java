@@ -0,0 +1,95 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+public record ProductProjection(String name, Set<ProductField> productFields, Set<VariantField> variantFields) {
+
+    public static final ProductProjection FULL_EXPORT = new ProductProjection("fullExport",
+        EnumSet.allOf(ProductField.class), EnumSet.allOf(VariantField.class));
+
+    public static final ProductProjection STALE_OOS = new ProductProjection("staleOos",
+        EnumSet.of(ProductField.ID, ProductField.UPDATED_AT, ProductField.CHANNEL_LISTINGS),
+        EnumSet.of(VariantField.SKU, VariantField.QUANTITY_AVAILABLE));
+
+    // the rating job writes the regular products sheet, so it needs every column that sheet fills
+    public static final ProductProjection RATING = new ProductProjection("rating",
+        EnumSet.of(ProductField.ID, ProductField.NAME, ProductField.CREATED, ProductField.THUMBNAIL, ProductField.CATEGORY,
+            ProductField.RATING, ProductField.CHANNEL_LISTINGS, ProductField.ATTRIBUTES, ProductField.WEIGHT),
+        EnumSet.of(VariantField.SKU, VariantField.TRACK_INVENTORY, VariantField.IMAGES, VariantField.QUANTITY_AVAILABLE,
+            VariantField.CHANNEL_LISTINGS));
+
+    // stock, price and publish state do not bump updatedAt, so incremental syncs re-read them separately
+    public static final ProductProjection LISTINGS = new ProductProjection("listings",
+        EnumSet.of(ProductField.ID, ProductField.CHANNEL_LISTINGS),
+        EnumSet.of(VariantField.SKU, VariantField.TRACK_INVENTORY, VariantField.QUANTITY_AVAILABLE,
+            VariantField.CHANNEL_LISTINGS));
+
+    public static final ProductProjection STOCK_ONLY = new ProductProjection("stockOnly",
+        EnumSet.of(ProductField.ID),
+        EnumSet.of(VariantField.ID, VariantField.SKU, VariantField.TRACK_INVENTORY, VariantField.QUANTITY_AVAILABLE,
+            VariantField.STOCKS));
+
+    public ProductProjection {
+        productFields = productFields.isEmpty() ? EnumSet.noneOf(ProductField.class) : EnumSet.copyOf(productFields);
+        variantFields = variantFields.isEmpty() ? EnumSet.noneOf(VariantField.class) : EnumSet.copyOf(variantFields);
+    }
+
+    public ProductProjection with(ProductField field) {
+        if (productFields.contains(field)) {
+            return this;
+        }
+        Set<ProductField> fields = EnumSet.copyOf(productFields);
+        fields.add(field);
+        return new ProductProjection(name + "+" + field.name().toLowerCase(), fields, variantFields);
+    }
+
+    public boolean includes(ProductField field) {
+        return productFields.contains(field);
+    }
+
+    public enum ProductField {
+        ID("id"),
+        NAME("name"),
+        CREATED("created"),
+        UPDATED_AT("updatedAt"),
+        THUMBNAIL("thumbnail {\n  url\n}"),
+        CATEGORY("category {\n  id\n  name\n  parent {\n    name\n  }\n}"),
+        RATING("rating"),
+        CHANNEL_LISTINGS("channelListings {\n  channel {\n    slug\n  }\n  isAvailableForPurchase\n  isPublished\n}"),
+        ATTRIBUTES("attributes {\n  attribute {\n    id\n    name\n  }\n  values {\n    id\n    name\n  }\n}"),
+        WEIGHT("weight {\n  unit\n  value\n}"),
+        METADATA("metadata {\n  key\n  value\n}\nprivateMetadata {\n  key\n  value\n}");
+
+        private final String selection;
+
+        ProductField(String selection) {
+            this.selection = selection;
+        }
+
+        public String selection() {
+            return selection;
+        }
+    }
+
+    public enum VariantField {
+        ID("id"),
+        SKU("sku"),
+        NAME("name"),
+        TRACK_INVENTORY("trackInventory"),
+        IMAGES("images {\n  url\n}"),
+        QUANTITY_AVAILABLE("quantityAvailable"),
+        STOCKS("stocks {\n  quantity\n  quantityAllocated\n  warehouse {\n    id\n  }\n}"),
+        CHANNEL_LISTINGS("channelListings {\n  channel {\n    slug\n  }\n  price {\n    amount\n  }\n  costPrice {\n    amount\n  }\n}");
+
+        private final String selection;
+
+        VariantField(String selection) {
+            this.selection = selection;
+        }
+
+        public String selection() {
+            return selection;
+        }
+    }
+}
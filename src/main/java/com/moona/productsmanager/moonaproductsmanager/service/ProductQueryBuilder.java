@@ -0,0 +1,46 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class ProductQueryBuilder {
+
+    private final Map<ProductProjection, String> queries = new ConcurrentHashMap<>();
+
+    public String productsQuery(ProductProjection projection) {
+        return queries.computeIfAbsent(projection, this::build);
+    }
+
+    private String build(ProductProjection projection) {
+        StringBuilder node = new StringBuilder();
+        projection.productFields().forEach(field -> node.append(field.selection()).append('\n'));
+        if (!projection.variantFields().isEmpty()) {
+            StringBuilder variant = new StringBuilder();
+            projection.variantFields().forEach(field -> variant.append(field.selection()).append('\n'));
+            node.append("variants {\n").append(indent(variant.toString(), 2)).append("}\n");
+        }
+        return "query lastXProducts($first: Int = 10, $after: String, $channel: String, $filter: ProductFilterInput, $sortBy: ProductOrder) {\n" +
+            "  products(first: $first, after: $after, channel: $channel, filter: $filter, sortBy: $sortBy) {\n" +
+            "    pageInfo {\n" +
+            "      hasNextPage\n" +
+            "      endCursor\n" +
+            "    }\n" +
+            "    edges {\n" +
+            "      node {\n" +
+            indent(node.toString(), 8) +
+            "      }\n" +
+            "    }\n" +
+            "  }\n" +
+            "}";
+    }
+
+    private String indent(String block, int spaces) {
+        String padding = " ".repeat(spaces);
+        StringBuilder indented = new StringBuilder();
+        block.lines().forEach(line -> indented.append(padding).append(line).append('\n'));
+        return indented.toString();
+    }
+}
@@ -0,0 +1,417 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.moona.productsmanager.moonaproductsmanager.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class ProductStreamDecoder {
+
+    private final ProductMapper productMapper;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public ProductStreamDecoder(ProductMapper productMapper) {
+        this.productMapper = productMapper;
+    }
+
+    public PageInfo readPageInfo(byte[] body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return readPageInfo(parser);
+        }
+    }
+
+    public List<Product> readProducts(byte[] body, String channel) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return readProducts(parser, channel);
+        }
+    }
+
+    private PageInfo readPageInfo(JsonParser parser) throws IOException {
+        List<String> errors = null;
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (token != JsonToken.FIELD_NAME) {
+                continue;
+            }
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("pageInfo".equals(field) && value == JsonToken.START_OBJECT) {
+                boolean hasNextPage = false;
+                String endCursor = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String pageField = parser.currentName();
+                    JsonToken pageValue = parser.nextToken();
+                    if ("hasNextPage".equals(pageField)) {
+                        hasNextPage = pageValue == JsonToken.VALUE_TRUE;
+                    } else if ("endCursor".equals(pageField)) {
+                        endCursor = scalarText(parser, pageValue);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                return new PageInfo(hasNextPage, endCursor);
+            }
+            if ("errors".equals(field) && value == JsonToken.START_ARRAY) {
+                errors = readErrorMessages(parser);
+            } else if (!"data".equals(field) && !"products".equals(field)) {
+                parser.skipChildren();
+            }
+        }
+        // without pageInfo the page was rejected, and reading it as the last page would silently truncate the export
+        throw new IllegalStateException("Products page returned no data.products" + (errors == null ? "" : ", errors=" + errors));
+    }
+
+    private List<String> readErrorMessages(JsonParser parser) throws IOException {
+        List<String> messages = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("message".equals(field) && value == JsonToken.VALUE_STRING) {
+                    messages.add(parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return messages;
+    }
+
+    private List<Product> readProducts(JsonParser parser, String channel) throws IOException {
+        List<Product> products = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (token != JsonToken.FIELD_NAME) {
+                continue;
+            }
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("edges".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String edgeField = parser.currentName();
+                        if (parser.nextToken() == JsonToken.START_OBJECT && "node".equals(edgeField)) {
+                            products.add(readProduct(parser, channel));
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+            } else if (!"data".equals(field) && !"products".equals(field)) {
+                parser.skipChildren();
+            }
+        }
+        return products;
+    }
+
+    private Product readProduct(JsonParser parser, String channel) throws IOException {
+        Product product = new Product();
+        String variantImage = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> product.setId(scalarText(parser, value));
+                case "name" -> product.setName(scalarText(parser, value));
+                case "rating" -> product.setRating(value.isNumeric() ? parser.getDoubleValue() : null);
+                case "created" -> product.setCreated(timestamp(parser, value));
+                case "updatedAt" -> product.setUpdatedAt(timestamp(parser, value));
+                case "category" -> readCategory(parser, value, product);
+                case "thumbnail" -> product.setImageUrl(readUrl(parser, value));
+                case "channelListings" -> readProductChannelListings(parser, value, product, channel);
+                case "variants" -> variantImage = readVariants(parser, value, product, channel);
+                case "attributes" -> readAttributes(parser, value, product);
+                case "weight" -> readWeight(parser, value, product);
+                // metadata, privateMetadata and anything not mapped onto Product
+                default -> parser.skipChildren();
+            }
+        }
+        if ((product.getImageUrl() == null || product.getImageUrl().isBlank()) && variantImage != null) {
+            product.setImageUrl(variantImage);
+        }
+        return product;
+    }
+
+    private void readCategory(JsonParser parser, JsonToken value, Product product) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken fieldValue = parser.nextToken();
+            if ("id".equals(field)) {
+                product.setCategoryId(scalarText(parser, fieldValue));
+            } else if ("name".equals(field)) {
+                product.setCategoryName(scalarText(parser, fieldValue));
+            } else if ("parent".equals(field) && fieldValue == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String parentField = parser.currentName();
+                    JsonToken parentValue = parser.nextToken();
+                    if ("name".equals(parentField)) {
+                        product.setParentCategoryName(scalarText(parser, parentValue));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readProductChannelListings(JsonParser parser, JsonToken value, Product product, String channel) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String slug = null;
+            Boolean published = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken fieldValue = parser.nextToken();
+                if ("channel".equals(field)) {
+                    slug = readSlug(parser, fieldValue);
+                } else if ("isPublished".equals(field) && fieldValue.isBoolean()) {
+                    published = fieldValue == JsonToken.VALUE_TRUE;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (published != null && channel.equalsIgnoreCase(slug)) {
+                product.setPublished(published);
+            }
+        }
+    }
+
+    private String readVariants(JsonParser parser, JsonToken value, Product product, String channel) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        String variantImage = null;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String sku = null;
+            Integer quantityAvailable = null;
+            Boolean trackInventory = null;
+            String image = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken fieldValue = parser.nextToken();
+                switch (field) {
+                    case "sku" -> sku = fieldValue == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    case "quantityAvailable" -> quantityAvailable = fieldValue.isNumeric() ? parser.getIntValue() : null;
+                    case "trackInventory" -> trackInventory = fieldValue.isBoolean() ? fieldValue == JsonToken.VALUE_TRUE : null;
+                    case "images" -> image = readFirstImage(parser, fieldValue);
+                    case "channelListings" -> readVariantChannelListings(parser, fieldValue, product, channel);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (product.getSku() == null && sku != null) {
+                product.setSku(sku);
+            }
+            if (product.getAvailableQuantity() == null) {
+                product.setAvailableQuantity(quantityAvailable);
+            }
+            if (product.getTrackInventory() == null) {
+                product.setTrackInventory(trackInventory);
+            }
+            if (variantImage == null && image != null && !image.isBlank()) {
+                variantImage = image;
+            }
+        }
+        return variantImage;
+    }
+
+    private void readVariantChannelListings(JsonParser parser, JsonToken value, Product product, String channel) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String slug = null;
+            Double price = null;
+            Double costPrice = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken fieldValue = parser.nextToken();
+                switch (field) {
+                    case "channel" -> slug = readSlug(parser, fieldValue);
+                    case "price" -> price = readAmount(parser, fieldValue);
+                    case "costPrice" -> costPrice = readAmount(parser, fieldValue);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (channel.equalsIgnoreCase(slug)) {
+                if (price != null) {
+                    product.setPrice(price);
+                }
+                if (costPrice != null) {
+                    product.setCostPrice(costPrice);
+                }
+            }
+        }
+    }
+
+    private void readAttributes(JsonParser parser, JsonToken value, Product product) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String attributeId = "";
+            String firstValue = null;
+            boolean hasValue = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken fieldValue = parser.nextToken();
+                if ("attribute".equals(field) && fieldValue == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String attributeField = parser.currentName();
+                        JsonToken attributeValue = parser.nextToken();
+                        if ("id".equals(attributeField)) {
+                            String id = scalarText(parser, attributeValue);
+                            attributeId = id == null ? "" : id;
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else if ("values".equals(field) && fieldValue == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String valueField = parser.currentName();
+                            JsonToken valueToken = parser.nextToken();
+                            if (!hasValue && "name".equals(valueField)) {
+                                firstValue = scalarText(parser, valueToken);
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                        hasValue = true;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (hasValue) {
+                productMapper.applyAttribute(product, attributeId, firstValue);
+            }
+        }
+    }
+
+    private void readWeight(JsonParser parser, JsonToken value, Product product) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken fieldValue = parser.nextToken();
+            if ("value".equals(field) && fieldValue.isNumeric()) {
+                product.setWeight(parser.getDoubleValue());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private String readFirstImage(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        String url = null;
+        boolean first = true;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            if (first) {
+                url = readObjectText(parser, "url");
+                first = false;
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return url;
+    }
+
+    private String readUrl(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        return readObjectText(parser, "url");
+    }
+
+    private String readSlug(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        return readObjectText(parser, "slug");
+    }
+
+    private Double readAmount(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        Double amount = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken fieldValue = parser.nextToken();
+            if ("amount".equals(field) && fieldValue.isNumeric()) {
+                amount = parser.getDoubleValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return amount;
+    }
+
+    private String readObjectText(JsonParser parser, String wanted) throws IOException {
+        String text = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken fieldValue = parser.nextToken();
+            if (wanted.equals(field)) {
+                text = scalarText(parser, fieldValue);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return text;
+    }
+
+    private OffsetDateTime timestamp(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(parser.getText());
+        } catch (Exception ignored) {
+            return null;
+        }
+    }
+
+    private String scalarText(JsonParser parser, JsonToken value) throws IOException {
+        if (value == null || value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
+
+    public record PageInfo(boolean hasNextPage, String endCursor) {
+    }
+}
@@ -0,0 +1,190 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.moona.productsmanager.moonaproductsmanager.config.UpdateProperties;
+import com.moona.productsmanager.moonaproductsmanager.model.Product;
+import com.moona.productsmanager.moonaproductsmanager.model.UpdateField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Component
+public class ProductWriteBehindQueue implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(ProductWriteBehindQueue.class);
+
+    private final ProductsUpdateService productsUpdateService;
+    private final UpdateProperties.WriteBehind settings;
+    private final Sinks.Many<Window> windows = Sinks.many().unicast().onBackpressureBuffer();
+    private final Disposable writer;
+    private Map<String, PendingUpdate> pending = new LinkedHashMap<>();
+    private List<MonoSink<Void>> waiters = new ArrayList<>();
+    private Disposable timer;
+    private long anonymous;
+
+    public ProductWriteBehindQueue(ProductsUpdateService productsUpdateService, UpdateProperties updateProperties) {
+        this.productsUpdateService = productsUpdateService;
+        this.settings = updateProperties.getWriteBehind();
+        // windows are written one after another so an older value can never land after a newer one
+        this.writer = windows.asFlux()
+            .concatMap(this::write)
+            .subscribe();
+    }
+
+    public Mono<Void> submit(List<Product> products, Set<UpdateField> fields) {
+        if (products == null || products.isEmpty()) {
+            return Mono.empty();
+        }
+        if (!settings.isEnabled()) {
+            return productsUpdateService.upsertProducts(products, fields, null);
+        }
+        return Mono.create(sink -> enqueue(products, fields, sink));
+    }
+
+    private synchronized void enqueue(List<Product> products, Set<UpdateField> fields, MonoSink<Void> sink) {
+        for (Product product : products) {
+            String key = product.getSku() != null && !product.getSku().isBlank() ? product.getSku() : "#" + anonymous++;
+            PendingUpdate update = pending.computeIfAbsent(key,
+                k -> new PendingUpdate(new Product(), EnumSet.noneOf(UpdateField.class), new HashSet<>()));
+            merge(update.product(), product, fields);
+            update.fields().addAll(fields);
+            update.waiters().add(sink);
+        }
+        waiters.add(sink);
+        if (pending.size() >= Math.max(1, settings.getMaxPending())) {
+            flush("size");
+        } else if (timer == null) {
+            timer = Mono.delay(Duration.ofMillis(Math.max(1, settings.getWindowMs())))
+                .subscribe(tick -> flushOnTimer());
+        }
+    }
+
+    private synchronized void flushOnTimer() {
+        timer = null;
+        if (!pending.isEmpty()) {
+            flush("time");
+        }
+    }
+
+    private void flush(String trigger) {
+        if (timer != null) {
+            timer.dispose();
+            timer = null;
+        }
+        Window window = new Window(pending, waiters);
+        pending = new LinkedHashMap<>();
+        waiters = new ArrayList<>();
+        log.info("Flushing write-behind window skus={} submissions={} trigger={}", window.updates().size(), window.waiters().size(), trigger);
+        windows.emitNext(window, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+    }
+
+    private Mono<Void> write(Window window) {
+        // SKUs coalesced under the same field mask go out as one upsert run
+        Map<Set<UpdateField>, List<PendingUpdate>> byFields = window.updates().values().stream()
+            .collect(Collectors.groupingBy(PendingUpdate::fields, LinkedHashMap::new, Collectors.toList()));
+        // a failing group only fails the submissions that had a product in it
+        Map<MonoSink<Void>, Throwable> failures = new ConcurrentHashMap<>();
+        return Flux.fromIterable(byFields.entrySet())
+            .concatMap(entry -> productsUpdateService.upsertProducts(
+                    entry.getValue().stream().map(PendingUpdate::product).toList(), entry.getKey(), null)
+                .onErrorResume(ex -> {
+                    entry.getValue().forEach(update -> update.waiters().forEach(sink -> failures.putIfAbsent(sink, ex)));
+                    return Mono.empty();
+                }))
+            .then(Mono.fromRunnable(() -> window.waiters().forEach(sink -> {
+                Throwable failure = failures.get(sink);
+                if (failure != null) {
+                    sink.error(failure);
+                } else {
+                    sink.success();
+                }
+            })));
+    }
+
+    // latest non-null value wins per field, and a submission only carries the fields its mask updates,
+    // so values it merely passed along can't overwrite fresher ones from another submission
+    static void merge(Product target, Product update, Set<UpdateField> fields) {
+        take(update.getId(), target::setId);
+        take(update.getSku(), target::setSku);
+        take(update.getChannelId(), target::setChannelId);
+        take(update.getWarehouseId(), target::setWarehouseId);
+        take(update.getTrackInventory(), target::setTrackInventory);
+        take(update.getCreated(), target::setCreated);
+        take(update.getUpdatedAt(), target::setUpdatedAt);
+        if (fields.contains(UpdateField.STOCK)) {
+            take(update.getAvailableQuantity(), target::setAvailableQuantity);
+            take(update.getNeededQuantity(), target::setNeededQuantity);
+        }
+        if (fields.contains(UpdateField.PRICE)) {
+            take(update.getPrice(), target::setPrice);
+            take(update.getCostPrice(), target::setCostPrice);
+        }
+        if (fields.contains(UpdateField.PUBLISH)) {
+            take(update.getPublished(), target::setPublished);
+        }
+        if (fields.contains(UpdateField.RATING)) {
+            take(update.getRating(), target::setRating);
+        }
+        if (fields.contains(UpdateField.MASTER)) {
+            take(update.getName(), target::setName);
+            take(update.getCategoryId(), target::setCategoryId);
+            take(update.getCategoryName(), target::setCategoryName);
+            take(update.getParentCategoryName(), target::setParentCategoryName);
+            take(update.getWeight(), target::setWeight);
+            take(update.getImageUrl(), target::setImageUrl);
+        }
+        if (fields.contains(UpdateField.ATTRIBUTES)) {
+            take(update.getWeighted(), target::setWeighted);
+            take(update.getMinAmount(), target::setMinAmount);
+            take(update.getBoxItemBarcode(), target::setBoxItemBarcode);
+            take(update.getBoxSize(), target::setBoxSize);
+            take(update.getBoycott(), target::setBoycott);
+            take(update.getMinOrderQuantity(), target::setMinOrderQuantity);
+            take(update.getProvider(), target::setProvider);
+            take(update.getMinStockQuantity(), target::setMinStockQuantity);
+            if (update.getProviders() != null && !update.getProviders().isEmpty()) {
+                target.setProviders(update.getProviders());
+            }
+        }
+    }
+
+    private static <T> void take(T value, Consumer<T> setter) {
+        if (value != null) {
+            setter.accept(value);
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (!pending.isEmpty()) {
+            log.warn("Dropping {} unflushed write-behind updates on shutdown", pending.size());
+        }
+        if (timer != null) {
+            timer.dispose();
+        }
+        windows.tryEmitComplete();
+        writer.dispose();
+    }
+
+    private record PendingUpdate(Product product, Set<UpdateField> fields, Set<MonoSink<Void>> waiters) {
+    }
+
+    private record Window(Map<String, PendingUpdate> updates, List<MonoSink<Void>> waiters) {
+    }
+}
@@ -1,19 +1,28 @@
 package com.moona.productsmanager.moonaproductsmanager.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.moona.productsmanager.moonaproductsmanager.config.ExportProperties;
+import com.moona.productsmanager.moonaproductsmanager.model.CatalogSnapshot;
+import com.moona.productsmanager.moonaproductsmanager.model.CategoryExportRow;
 import com.moona.productsmanager.moonaproductsmanager.model.Product;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,19 +33,27 @@ public class ProductsExportService {
     private static final Logger log = LoggerFactory.getLogger(ProductsExportService.class);
 
     private final ApiClient apiClient;
-    private final ProductMapper productMapper;
+    private final ProductStreamDecoder productStreamDecoder;
     private final ExportProperties exportProperties;
     private final ExcelWriter excelWriter;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CategoriesExportService categoriesExportService;
+    private final ProductQueryBuilder productQueryBuilder;
+    private final CatalogSnapshotStore catalogSnapshotStore;
 
     public ProductsExportService(ApiClient apiClient,
-                                 ProductMapper productMapper,
+                                 ProductStreamDecoder productStreamDecoder,
                                  ExportProperties exportProperties,
-                                 ExcelWriter excelWriter) {
+                                 ExcelWriter excelWriter,
+                                 CategoriesExportService categoriesExportService,
+                                 ProductQueryBuilder productQueryBuilder,
+                                 CatalogSnapshotStore catalogSnapshotStore) {
         this.apiClient = apiClient;
-        this.productMapper = productMapper;
+        this.productStreamDecoder = productStreamDecoder;
         this.exportProperties = exportProperties;
         this.excelWriter = excelWriter;
+        this.categoriesExportService = categoriesExportService;
+        this.productQueryBuilder = productQueryBuilder;
+        this.catalogSnapshotStore = catalogSnapshotStore;
     }
 
     public Mono<List<Product>> fetchAllProducts() {
@@ -60,7 +77,143 @@ public class ProductsExportService {
     }
 
     public Mono<List<Product>> fetchAllProducts(String createdAfterIso, String updatedBeforeIso, String categoryId, Boolean published) {
-        return fetchPage(new ArrayList<>(), exportProperties.getPageSize(), null, createdAfterIso, updatedBeforeIso, categoryId, published);
+        return streamProducts(createdAfterIso, updatedBeforeIso, categoryId, published)
+            .collectList();
+    }
+
+    public Flux<Product> streamProducts() {
+        return streamProducts(null, null, null, null);
+    }
+
+    public Flux<Product> streamProducts(String createdAfterIso, String updatedBeforeIso, String categoryId, Boolean published) {
+        return streamProducts(createdAfterIso, updatedBeforeIso, categoryId, published, exportProperties.getPageSize());
+    }
+
+    public Flux<Product> streamProducts(String createdAfterIso, String updatedBeforeIso, String categoryId, Boolean published, int pageSize) {
+        return streamProducts(ProductProjection.FULL_EXPORT, createdAfterIso, updatedBeforeIso, categoryId, published, pageSize);
+    }
+
+    public Flux<Product> streamProducts(ProductProjection projection, String createdAfterIso, String updatedBeforeIso, String categoryId, Boolean published) {
+        return streamProducts(projection, createdAfterIso, updatedBeforeIso, categoryId, published, exportProperties.getPageSize());
+    }
+
+    public Flux<Product> streamProducts(ProductProjection projection, String createdAfterIso, String updatedBeforeIso, String categoryId, Boolean published, int pageSize) {
+        return streamProducts(createdAfterIso, new PageQuery(projection, null, updatedBeforeIso, categoryId, published, null, null), pageSize);
+    }
+
+    public Flux<Product> streamProductsShardedByCategory(String createdAfterIso, String updatedBeforeIso, Boolean published) {
+        int concurrency = Math.max(1, exportProperties.getShardConcurrency());
+        return categoriesExportService.fetchAllCategories()
+            .flatMapMany(rows -> {
+                // the categories filter includes descendants, so root categories cover the tree without overlap
+                List<PageQuery> shards = new ArrayList<>();
+                rows.stream()
+                    .filter(row -> row.getChildId() == null && row.getParentId() != null)
+                    .forEach(row -> shards.add(new PageQuery(ProductProjection.FULL_EXPORT, null, updatedBeforeIso, row.getParentId(), published, null, null)));
+                shards.add(new PageQuery(ProductProjection.FULL_EXPORT, null, updatedBeforeIso, null, published, false, null));
+                log.info("Sharding products export over {} root categories plus uncategorized (concurrency={})", shards.size() - 1, concurrency);
+                return Flux.fromIterable(shards)
+                    .flatMap(shard -> streamProducts(createdAfterIso, shard, exportProperties.getPageSize()), concurrency);
+            })
+            .distinct(Product::getId);
+    }
+
+    private Flux<Product> streamProducts(String createdAfterIso, PageQuery pageQuery, int pageSize) {
+        // unpublish decisions have to see live stock and publish state, and the rating diff live ratings, never a cached copy
+        if (pageQuery.updatedAfterIso() != null || pageQuery.projection().equals(ProductProjection.STALE_OOS)
+            || pageQuery.projection().equals(ProductProjection.RATING)) {
+            return streamRemote(createdAfterIso, pageQuery, pageSize);
+        }
+        return Mono.fromCallable(catalogSnapshotStore::fresh)
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapMany(snapshot -> snapshot.isPresent()
+                ? streamFromSnapshot(snapshot.get(), createdAfterIso, pageQuery)
+                : streamRemote(createdAfterIso, pageQuery, pageSize));
+    }
+
+    private Flux<Product> streamFromSnapshot(CatalogIndex snapshot, String createdAfterIso, PageQuery pageQuery) {
+        OffsetDateTime createdAfter = parseCreatedAfter(createdAfterIso);
+        OffsetDateTime updatedBefore = parseIso(pageQuery.updatedBeforeIso());
+        Mono<List<Product>> candidates;
+        if (pageQuery.categoryId() != null && !pageQuery.categoryId().isBlank()) {
+            candidates = categoriesExportService.fetchAllCategories()
+                .map(rows -> snapshot.byCategories(descendantCategoryIds(pageQuery.categoryId(), rows)));
+        } else {
+            candidates = Mono.just(snapshot.products());
+        }
+        log.info("Serving products from catalog snapshot (fullSyncAt={}, {})", snapshot.fullSyncAt(), pageQuery);
+        return candidates
+            .flatMapIterable(products -> products)
+            .filter(product -> pageQuery.published() == null || pageQuery.published().equals(product.getPublished()))
+            .filter(product -> pageQuery.hasCategory() == null || pageQuery.hasCategory() == (product.getCategoryId() != null))
+            .filter(product -> updatedBefore == null
+                || (product.getUpdatedAt() != null && !product.getUpdatedAt().isAfter(updatedBefore)))
+            .filter(product -> createdAfter == null
+                || (product.getCreated() != null && !product.getCreated().isBefore(createdAfter)));
+    }
+
+    private Set<String> descendantCategoryIds(String rootId, List<CategoryExportRow> rows) {
+        Set<String> ids = new HashSet<>();
+        ids.add(rootId);
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (CategoryExportRow row : rows) {
+                if (row.getChildId() != null && ids.contains(row.getParentId()) && ids.add(row.getChildId())) {
+                    grown = true;
+                }
+            }
+        }
+        return ids;
+    }
+
+    private Flux<Product> streamRemote(String createdAfterIso, PageQuery pageQuery, int pageSize) {
+        OffsetDateTime createdAfter = parseCreatedAfter(createdAfterIso);
+        PageQuery filter = createdAfter == null ? pageQuery : pageQuery.withCreatedAfter(createdAfter);
+        if (filter.isFullCatalog()) {
+            // an unfiltered full download refreshes the shared snapshot while it streams
+            return Flux.using(catalogSnapshotStore::openWriter,
+                writer -> streamPages(filter, pageSize)
+                    .doOnNext(writer::append)
+                    .doOnComplete(() -> {
+                        try {
+                            OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+                            writer.commit(null, now);
+                        } catch (IOException e) {
+                            log.warn("Failed to save catalog snapshot: {}", e.getMessage());
+                        }
+                    }),
+                CatalogSnapshotStore.SnapshotWriter::close);
+        }
+        return streamPages(filter, pageSize);
+    }
+
+    private Flux<Product> streamPages(PageQuery filter, int pageSize) {
+        int prefetchPages = Math.max(0, exportProperties.getPrefetchPages());
+        return Flux.defer(() -> {
+            AtomicInteger fetched = new AtomicInteger();
+            PrefetchStats stats = new PrefetchStats();
+            PageSizer sizer = new PageSizer(pageSize, exportProperties.getAdaptivePaging());
+            Flux<RawPage> pages = fetchPage(sizer, null, filter, stats)
+                .expand(page -> page.hasNextPage() && page.endCursor() != null
+                    ? fetchPage(sizer, page.endCursor(), filter, stats)
+                    : Mono.empty());
+            if (prefetchPages > 0) {
+                // the cursor is known before the page is mapped, so up to prefetchPages requests run ahead of mapping
+                pages = pages.publishOn(Schedulers.boundedElastic(), prefetchPages);
+            }
+            Flux<Product> products = pages.concatMapIterable(page -> mapPage(page, fetched, stats), 1);
+            if (filter.createdAfter() != null) {
+                // pages come newest first, so the first product older than the window ends the download
+                products = products.takeWhile(product -> product.getCreated() != null
+                    && !product.getCreated().isBefore(filter.createdAfter()));
+            }
+            return products
+                .doOnComplete(() -> {
+                    log.info("No more pages; total products fetched={} ({}).", fetched.get(), filter);
+                    stats.report(prefetchPages);
+                });
+        });
     }
 
     public String defaultUpdatedBeforeIso(int stalenessDays) {
@@ -93,198 +246,321 @@ public class ProductsExportService {
 
     public Mono<String> exportProductsToFile(String createdAfterIso, String updatedBeforeIso, String categoryId, Boolean published) {
         log.info("Starting products export (channel={}, pageSize={}, createdAfter={}, updatedBefore={}, categoryId={}, published={})", exportProperties.getChannel(), exportProperties.getPageSize(), createdAfterIso, updatedBeforeIso, categoryId, published);
-        return fetchAllProducts(createdAfterIso, updatedBeforeIso, categoryId, published)
-            .flatMap(products -> {
-                try {
-                    excelWriter.exportProducts(products);
-                    log.info("Export finished, wrote {} products{}{}", products.size(), categoryId == null || categoryId.isBlank() ? "" : " (filtered)", published == null ? "" : " (published=" + published + ")");
-                    return Mono.just("Exported " + products.size() + " products");
-                } catch (IOException e) {
-                    log.error("Failed to write export file", e);
-                    return Mono.error(e);
+        return writeProductsFile(streamProducts(createdAfterIso, updatedBeforeIso, categoryId, published),
+            categoryId == null || categoryId.isBlank() ? "" : " (filtered)", published);
+    }
+
+    public Mono<String> exportProductsToFileShardedByCategory(String createdAfterIso, String updatedBeforeIso, Boolean published) {
+        log.info("Starting category-sharded products export (channel={}, pageSize={}, shardConcurrency={}, createdAfter={}, updatedBefore={}, published={})", exportProperties.getChannel(), exportProperties.getPageSize(), exportProperties.getShardConcurrency(), createdAfterIso, updatedBeforeIso, published);
+        return writeProductsFile(streamProductsShardedByCategory(createdAfterIso, updatedBeforeIso, published), " (sharded)", published);
+    }
+
+    public Mono<String> exportProductsToFileIncremental() {
+        log.info("Starting incremental products export (channel={}, pageSize={})", exportProperties.getChannel(), exportProperties.getPageSize());
+        return syncCatalogIncrementally()
+            .flatMap(products -> writeProductsFile(Flux.fromIterable(products), " (incremental)", null));
+    }
+
+    public Mono<List<Product>> syncCatalogIncrementally() {
+        return Mono.fromCallable(catalogSnapshotStore::current)
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(previous -> {
+                OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+                int fullResyncHours = exportProperties.getIncremental().getFullResyncHours();
+                boolean incremental = previous.isPresent()
+                    && previous.get().watermark() != null
+                    && previous.get().fullSyncAt() != null
+                    && (fullResyncHours <= 0 || previous.get().fullSyncAt().isAfter(now.minusHours(fullResyncHours)));
+                if (!incremental) {
+                    log.info("Running full catalog sync (snapshotPresent={}, fullResyncHours={})", previous.isPresent(), fullResyncHours);
+                    return streamRemote(null, PageQuery.fullCatalog(), exportProperties.getPageSize())
+                        .collectList();
                 }
+                CatalogIndex snapshot = previous.get();
+                PageQuery changedSince = new PageQuery(ProductProjection.FULL_EXPORT, snapshot.watermark().toString(), null, null, null, null, null);
+                PageQuery listings = new PageQuery(ProductProjection.LISTINGS, null, null, null, null, null, null);
+                log.info("Running incremental catalog sync (watermark={}, cached={})", snapshot.watermark(), snapshot.size());
+                return streamRemote(null, changedSince, exportProperties.getPageSize())
+                    .collectList()
+                    .zipWith(streamPages(listings, exportProperties.getPageSize())
+                        .filter(p -> p.getId() != null)
+                        .collectMap(Product::getId))
+                    .flatMap(result -> {
+                        List<Product> changed = result.getT1();
+                        Map<String, Product> current = result.getT2();
+                        Map<String, Product> byId = new LinkedHashMap<>();
+                        int dropped = 0;
+                        List<Product> cachedProducts = snapshot.products();
+                        for (Product cached : cachedProducts) {
+                            Product listing = current.get(cached.getId());
+                            if (listing == null) {
+                                // every live product shows up in the listings pass, so a missing one was deleted
+                                dropped++;
+                                continue;
+                            }
+                            applyListings(cached, listing);
+                            byId.put(cached.getId(), cached);
+                        }
+                        changed.forEach(p -> byId.put(p.getId(), p));
+                        log.info("Incremental sync merged {} changed products into {} cached, refreshed stock and listings, dropped {} deleted (total={})",
+                            changed.size(), cachedProducts.size(), dropped, byId.size());
+                        CatalogSnapshot merged = new CatalogSnapshot(maxUpdatedAt(snapshot.watermark(), changed), snapshot.fullSyncAt(), now, new ArrayList<>(byId.values()));
+                        return Mono.fromCallable(() -> {
+                            catalogSnapshotStore.save(merged);
+                            return merged.products();
+                        }).subscribeOn(Schedulers.boundedElastic());
+                    });
             });
     }
 
-    private Mono<List<Product>> fetchPage(List<Product> accumulator, int pageSize, String afterCursor) {
-        return fetchPage(accumulator, pageSize, afterCursor, null, null, null);
+    private void applyListings(Product target, Product listing) {
+        target.setPublished(listing.getPublished());
+        target.setPrice(listing.getPrice());
+        target.setCostPrice(listing.getCostPrice());
+        target.setAvailableQuantity(listing.getAvailableQuantity());
+        target.setTrackInventory(listing.getTrackInventory());
     }
 
-    private Mono<List<Product>> fetchPage(List<Product> accumulator, int pageSize, String afterCursor, String createdAfterIso) {
-        return fetchPage(accumulator, pageSize, afterCursor, createdAfterIso, null, null);
+    private OffsetDateTime maxUpdatedAt(OffsetDateTime current, List<Product> products) {
+        OffsetDateTime watermark = current;
+        for (Product product : products) {
+            if (product.getUpdatedAt() != null && (watermark == null || product.getUpdatedAt().isAfter(watermark))) {
+                watermark = product.getUpdatedAt();
+            }
+        }
+        return watermark;
     }
 
-    private Mono<List<Product>> fetchPage(List<Product> accumulator, int pageSize, String afterCursor, String createdAfterIso, String updatedBeforeIso) {
-        return fetchPage(accumulator, pageSize, afterCursor, createdAfterIso, updatedBeforeIso, null);
+    private Mono<String> writeProductsFile(Flux<Product> products, String description, Boolean published) {
+        return Mono.using(excelWriter::openProductsSheet,
+                sheet -> products
+                    .doOnNext(sheet::append)
+                    .then(Mono.fromCallable(() -> {
+                        sheet.save();
+                        log.info("Export finished, wrote {} products{}{}", sheet.size(), description, published == null ? "" : " (published=" + published + ")");
+                        return "Exported " + sheet.size() + " products";
+                    })),
+                this::closeSheet)
+            .doOnError(IOException.class, e -> log.error("Failed to write export file", e));
     }
 
-    private Mono<List<Product>> fetchPage(List<Product> accumulator, int pageSize, String afterCursor, String createdAfterIso, String updatedBeforeIso, String categoryId) {
-        return fetchPage(accumulator, pageSize, afterCursor, createdAfterIso, updatedBeforeIso, categoryId, null);
+    private void closeSheet(ExcelWriter.ProductsSheet sheet) {
+        try {
+            sheet.close();
+        } catch (IOException e) {
+            log.warn("Failed to release export workbook", e);
+        }
     }
 
-    private Mono<List<Product>> fetchPage(List<Product> accumulator, int pageSize, String afterCursor, String createdAfterIso, String updatedBeforeIso, String categoryId, Boolean published) {
-        log.info("Fetching products page (after={}, accumulated={}, createdAfter={}, updatedBefore={}, categoryId={}, published={})", afterCursor, accumulator.size(), createdAfterIso, updatedBeforeIso, categoryId, published);
-        return fetchProducts(pageSize, afterCursor, updatedBeforeIso, categoryId, published)
-            .flatMap(responseJson -> {
-                JsonNode root;
-                try {
-                    root = objectMapper.readTree(responseJson);
-                } catch (IOException e) {
-                    return Mono.error(e);
-                }
-                JsonNode productsNode = root.path("data").path("products");
-                JsonNode edges = productsNode.path("edges");
-                int pageCount = 0;
-                if (edges.isArray()) {
-                    for (JsonNode edge : edges) {
-                        JsonNode node = edge.path("node");
-                        Product product = productMapper.fromGraphQlNode(node, exportProperties.getChannel());
-                        accumulator.add(product);
-                        pageCount++;
+    private Mono<RawPage> fetchPage(PageSizer sizer, String afterCursor, PageQuery filter, PrefetchStats stats) {
+        return Mono.defer(() -> {
+            int pageSize = sizer.current();
+            log.info("Fetching products page (after={}, first={}, {})", afterCursor, pageSize, filter);
+            long started = System.nanoTime();
+            // a page that can still shrink is not retried at the same size, the shrink below refetches it at once
+            return fetchProducts(pageSize, afterCursor, filter, !sizer.canShrink(pageSize))
+                .flatMap(responseJson -> {
+                    long elapsed = System.nanoTime() - started;
+                    stats.fetched(elapsed);
+                    try {
+                        RawPage page = readPageInfo(responseJson);
+                        if (page.hasNextPage()) {
+                            sizer.observe(pageSize, responseJson.length, elapsed);
+                        }
+                        return Mono.just(page);
+                    } catch (IOException e) {
+                        return Mono.error(e);
                     }
-                }
-                log.info("Fetched {} products on this page (total={})", pageCount, accumulator.size());
+                })
+                .onErrorResume(ApiClient::isTimeout, e -> sizer.shrink(pageSize)
+                    ? fetchPage(sizer, afterCursor, filter, stats)
+                    : Mono.error(e));
+        });
+    }
 
-                boolean hasNextPage = productsNode.path("pageInfo").path("hasNextPage").asBoolean(false);
-                String endCursor = productsNode.path("pageInfo").path("endCursor").asText(null);
-                if (hasNextPage && endCursor != null) {
-                    return fetchPage(accumulator, pageSize, endCursor, createdAfterIso, updatedBeforeIso, categoryId, published);
-                }
-                log.info("No more pages; total products collected={}.", accumulator.size());
-                return Mono.just(accumulator);
-            })
-            .map(products -> filterByCreatedAfter(products, createdAfterIso));
+    private RawPage readPageInfo(byte[] responseJson) throws IOException {
+        ProductStreamDecoder.PageInfo pageInfo = productStreamDecoder.readPageInfo(responseJson);
+        return new RawPage(responseJson, pageInfo.hasNextPage(), pageInfo.endCursor());
     }
 
-    private List<Product> filterByCreatedAfter(List<Product> products, String createdAfterIso) {
-        if (createdAfterIso == null || createdAfterIso.isBlank()) {
-            return products;
-        }
+    private List<Product> mapPage(RawPage page, AtomicInteger fetched, PrefetchStats stats) {
+        long started = System.nanoTime();
+        List<Product> products;
         try {
-            OffsetDateTime threshold = OffsetDateTime.parse(createdAfterIso);
-            return products.stream()
-                .filter(p -> p.getCreated() != null && !p.getCreated().isBefore(threshold))
-                .toList();
-        } catch (Exception ex) {
-            log.warn("Invalid createdAfterIso '{}', returning unfiltered list", createdAfterIso);
-            return products;
+            products = productStreamDecoder.readProducts(page.body(), exportProperties.getChannel());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        stats.mapped(System.nanoTime() - started);
+        log.info("Fetched {} products on this page (total={})", products.size(), fetched.addAndGet(products.size()));
+        return products;
     }
 
-    private Mono<String> fetchProducts(int pageSize, String after, String updatedBeforeIso) {
-        return fetchProducts(pageSize, after, updatedBeforeIso, null, null);
+    private OffsetDateTime parseIso(String iso) {
+        if (iso == null || iso.isBlank()) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(iso);
+        } catch (Exception ex) {
+            log.warn("Invalid ISO timestamp '{}', ignoring it", iso);
+            return null;
+        }
     }
 
-    private Mono<String> fetchProducts(int pageSize, String after, String updatedBeforeIso, String categoryId) {
-        return fetchProducts(pageSize, after, updatedBeforeIso, categoryId, null);
+    private OffsetDateTime parseCreatedAfter(String createdAfterIso) {
+        if (createdAfterIso == null || createdAfterIso.isBlank()) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(createdAfterIso);
+        } catch (Exception ex) {
+            log.warn("Invalid createdAfterIso '{}', returning unfiltered list", createdAfterIso);
+            return null;
+        }
     }
 
-    private Mono<String> fetchProducts(int pageSize, String after, String updatedBeforeIso, String categoryId, Boolean published) {
-        String productQuery = buildProductQuery();
+    private Mono<byte[]> fetchProducts(int pageSize, String after, PageQuery pageFilter, boolean retryTimeouts) {
+        String productQuery = productQueryBuilder.productsQuery(pageFilter.projection());
         Map<String, Object> variables = new HashMap<>();
         variables.put("first", pageSize);
         variables.put("after", after);
         variables.put("channel", exportProperties.getChannel());
         Map<String, Object> filter = new HashMap<>();
-        if (published != null) {
-            filter.put("isPublished", published);
+        if (pageFilter.published() != null) {
+            filter.put("isPublished", pageFilter.published());
+        }
+        Map<String, Object> updatedAtFilter = new HashMap<>();
+        if (pageFilter.updatedAfterIso() != null && !pageFilter.updatedAfterIso().isBlank()) {
+            updatedAtFilter.put("gte", pageFilter.updatedAfterIso());
         }
-        if (updatedBeforeIso != null && !updatedBeforeIso.isBlank()) {
-            Map<String, Object> updatedAtFilter = new HashMap<>();
-            updatedAtFilter.put("lte", updatedBeforeIso);
+        if (pageFilter.updatedBeforeIso() != null && !pageFilter.updatedBeforeIso().isBlank()) {
+            updatedAtFilter.put("lte", pageFilter.updatedBeforeIso());
+        }
+        if (!updatedAtFilter.isEmpty()) {
             filter.put("updatedAt", updatedAtFilter);
         }
-        if (categoryId != null && !categoryId.isBlank()) {
-            filter.put("categories", List.of(categoryId));
+        if (pageFilter.categoryId() != null && !pageFilter.categoryId().isBlank()) {
+            filter.put("categories", List.of(pageFilter.categoryId()));
+        }
+        if (pageFilter.hasCategory() != null) {
+            filter.put("hasCategory", pageFilter.hasCategory());
         }
         variables.put("filter", filter);
-        return apiClient.mutation(productQuery, variables);
-    }
-
-    private String buildProductQuery() {
-        return "query lastXProducts($first: Int = 10, $after: String, $channel: String, $filter: ProductFilterInput,) {\n" +
-            "      products(first: $first, after: $after, channel: $channel, filter: $filter) {\n" +
-            "      edges {\n" +
-            "        node {\n" +
-            "          id\n" +
-            "          name\n" +
-            "          created\n" +
-            "          updatedAt\n" +
-            "          thumbnail{\n" +
-            "            url\n" +
-            "          }\n" +
-            "          category{\n" +
-            "            id\n" +
-            "            name\n" +
-            "            parent{\n" +
-            "             name\n" +
-            "            }\n" +
-            "          }\n" +
-            "          rating\n" +
-            "          channelListings {\n" +
-            "            channel {\n" +
-            "              slug\n" +
-            "            }\n" +
-            "            isAvailableForPurchase\n" +
-            "            isPublished\n" +
-            "          }\n" +
-            "          variants {\n" +
-            "            id\n" +
-            "            sku\n" +
-            "            name\n" +
-            "            trackInventory\n" +
-            "            images {\n" +
-            "              url\n" +
-            "            }\n" +
-            "            quantityAvailable\n" +
-            "            stocks {\n" +
-            "              quantity\n" +
-            "              quantityAllocated\n" +
-            "              warehouse {\n" +
-            "                id\n" +
-            "              }\n" +
-            "            }\n" +
-            "            channelListings {\n" +
-            "             channel {\n" +
-            "              slug\n" +
-            "             }\n" +
-            "             price {\n" +
-            "               amount\n" +
-            "             }\n" +
-            "             costPrice{\n" +
-            "               amount\n" +
-            "             }\n" +
-            "            }" +
-            "          }\n" +
-            "          attributes {\n" +
-            "            attribute {\n" +
-            "              id\n" +
-            "              name\n" +
-            "            }\n" +
-            "            values {\n" +
-            "              id\n" +
-            "              name\n" +
-            "            }\n" +
-            "          }\n" +
-            "          weight {\n" +
-            "            unit\n" +
-            "            value\n" +
-            "          }\n" +
-            "          metadata {\n" +
-            "            key\n" +
-            "            value\n" +
-            "          }\n" +
-            "          privateMetadata {\n" +
-            "            key\n" +
-            "            value\n" +
-            "          }\n" +
-            "        }\n" +
-            "      }\n" +
-            "      pageInfo {\n" +
-            "        hasNextPage\n" +
-            "        endCursor\n" +
-            "      }\n" +
-            "    }\n" +
-            "  }";
+        if (pageFilter.createdAfter() != null) {
+            variables.put("sortBy", Map.of("field", "CREATED_AT", "direction", "DESC"));
+        }
+        return apiClient.mutationBytes(productQuery, variables, retryTimeouts);
+    }
+
+    private record PageQuery(ProductProjection projection, String updatedAfterIso, String updatedBeforeIso, String categoryId, Boolean published, Boolean hasCategory,
+                             OffsetDateTime createdAfter) {
+
+        static PageQuery fullCatalog() {
+            return new PageQuery(ProductProjection.FULL_EXPORT, null, null, null, null, null, null);
+        }
+
+        boolean isFullCatalog() {
+            return projection.equals(ProductProjection.FULL_EXPORT) && updatedAfterIso == null && updatedBeforeIso == null
+                && categoryId == null && published == null && hasCategory == null && createdAfter == null;
+        }
+
+        PageQuery withCreatedAfter(OffsetDateTime created) {
+            return new PageQuery(projection.with(ProductProjection.ProductField.CREATED), updatedAfterIso, updatedBeforeIso, categoryId, published, hasCategory, created);
+        }
+
+        @Override
+        public String toString() {
+            return "projection=" + projection.name() + ", updatedAfter=" + updatedAfterIso + ", updatedBefore=" + updatedBeforeIso
+                + ", categoryId=" + categoryId + ", published=" + published + ", hasCategory=" + hasCategory + ", createdAfter=" + createdAfter;
+        }
+    }
+
+    private record RawPage(byte[] body, boolean hasNextPage, String endCursor) {
+    }
+
+    private static final class PageSizer {
+        // Saleor caps connection pages at 100 nodes
+        private static final int MAX_CONNECTION_PAGE_SIZE = 100;
+        private final boolean adaptive;
+        private final int minPageSize;
+        private final int maxPageSize;
+        private final int targetPageMs;
+        private final int maxPageBytes;
+        private volatile int current;
+
+        PageSizer(int initialPageSize, ExportProperties.AdaptivePaging config) {
+            this.adaptive = config.isEnabled();
+            this.minPageSize = Math.min(MAX_CONNECTION_PAGE_SIZE, Math.max(1, config.getMinPageSize()));
+            this.maxPageSize = Math.min(MAX_CONNECTION_PAGE_SIZE, Math.max(minPageSize, config.getMaxPageSize()));
+            this.targetPageMs = Math.max(1, config.getTargetPageMs());
+            this.maxPageBytes = Math.max(1, config.getMaxPageBytes());
+            this.current = adaptive ? clamp(initialPageSize) : Math.min(MAX_CONNECTION_PAGE_SIZE, initialPageSize);
+        }
+
+        int current() {
+            return current;
+        }
+
+        void observe(int requested, int bytes, long nanos) {
+            if (!adaptive) {
+                return;
+            }
+            long elapsedMs = Math.max(1, Duration.ofNanos(nanos).toMillis());
+            double bytesPerProduct = Math.max(1d, (double) bytes / requested);
+            long byBytes = (long) (maxPageBytes / bytesPerProduct);
+            long byTime = requested * (long) targetPageMs / elapsedMs;
+            int next = clamp(Math.min(Math.min(byBytes, byTime), requested * 2L));
+            // ignore small swings so a noisy response time does not change the size every page
+            if (Math.abs(next - requested) * 10 >= requested) {
+                resize(requested, next, "pageMs=" + elapsedMs + ", bytes=" + bytes);
+            }
+        }
+
+        boolean canShrink(int requested) {
+            return adaptive && Math.max(minPageSize, requested / 2) < requested;
+        }
+
+        boolean shrink(int requested) {
+            if (!canShrink(requested)) {
+                return false;
+            }
+            resize(requested, Math.max(minPageSize, requested / 2), "timeout");
+            return true;
+        }
+
+        private void resize(int from, int to, String reason) {
+            current = to;
+            log.info("Products page size {} -> {} ({})", from, to, reason);
+        }
+
+        private int clamp(long pageSize) {
+            return (int) Math.max(minPageSize, Math.min(maxPageSize, pageSize));
+        }
+    }
+
+    private static final class PrefetchStats {
+        private final long startedAt = System.nanoTime();
+        private final AtomicInteger pages = new AtomicInteger();
+        private final AtomicLong fetchNanos = new AtomicLong();
+        private final AtomicLong mapNanos = new AtomicLong();
+
+        void fetched(long nanos) {
+            pages.incrementAndGet();
+            fetchNanos.addAndGet(nanos);
+        }
+
+        void mapped(long nanos) {
+            mapNanos.addAndGet(nanos);
+        }
+
+        void report(int prefetchPages) {
+            long wallMs = Duration.ofNanos(System.nanoTime() - startedAt).toMillis();
+            long fetchMs = Duration.ofNanos(fetchNanos.get()).toMillis();
+            long mapMs = Duration.ofNanos(mapNanos.get()).toMillis();
+            long savedMs = Math.max(0, fetchMs + mapMs - wallMs);
+            log.info("Page pipeline finished (pages={}, prefetch={}, networkMs={}, mappingMs={}, wallMs={}, idleSavedMs={})",
+                pages.get(), prefetchPages, fetchMs, mapMs, wallMs, savedMs);
+        }
     }
 }
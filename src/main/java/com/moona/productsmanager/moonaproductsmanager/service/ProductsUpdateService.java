@@ -2,7 +2,9 @@ package com.moona.productsmanager.moonaproductsmanager.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moona.productsmanager.moonaproductsmanager.config.UpdateProperties;
 import com.moona.productsmanager.moonaproductsmanager.model.Product;
+import com.moona.productsmanager.moonaproductsmanager.model.UpdateField;
 import com.moona.productsmanager.moonaproductsmanager.util.Helper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,157 +12,495 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class ProductsUpdateService {
     private static final Logger log = LoggerFactory.getLogger(ProductsUpdateService.class);
 
+    private static final double RATING_TOLERANCE = 0.0001d;
+
     private final ApiClient apiClient;
     private final Helper helper;
     private final ObjectMapper objectMapper;
-
-    public ProductsUpdateService(ApiClient apiClient, Helper helper, ObjectMapper objectMapper) {
+    private final VariantSkuResolver variantSkuResolver;
+    private final UpdateProperties updateProperties;
+    private final GraphqlMultiplexer graphqlMultiplexer;
+    private final ProductDiff productDiff;
+    private final SkuIndexStore skuIndexStore;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final UpsertJournal upsertJournal;
+    private final PriorityLaneScheduler laneScheduler;
+    private final CatalogSnapshotStore catalogSnapshotStore;
+
+    public ProductsUpdateService(ApiClient apiClient, Helper helper, ObjectMapper objectMapper, VariantSkuResolver variantSkuResolver,
+                                 UpdateProperties updateProperties, GraphqlMultiplexer graphqlMultiplexer, ProductDiff productDiff,
+                                 SkuIndexStore skuIndexStore, AdaptiveConcurrencyLimiter concurrencyLimiter, UpsertJournal upsertJournal,
+                                 PriorityLaneScheduler laneScheduler, CatalogSnapshotStore catalogSnapshotStore) {
         this.apiClient = apiClient;
         this.helper = helper;
         this.objectMapper = objectMapper;
+        this.variantSkuResolver = variantSkuResolver;
+        this.updateProperties = updateProperties;
+        this.graphqlMultiplexer = graphqlMultiplexer;
+        this.productDiff = productDiff;
+        this.skuIndexStore = skuIndexStore;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.upsertJournal = upsertJournal;
+        this.laneScheduler = laneScheduler;
+        this.catalogSnapshotStore = catalogSnapshotStore;
     }
 
-    public enum UpdateMode {FULL, SKIP_PRODUCT_MASTER_DATA}
+    public enum UpdateMode {
+        FULL(EnumSet.allOf(UpdateField.class)),
+        SKIP_PRODUCT_MASTER_DATA(EnumSet.of(UpdateField.STOCK, UpdateField.PRICE, UpdateField.PUBLISH));
+
+        private final Set<UpdateField> fields;
+
+        UpdateMode(Set<UpdateField> fields) {
+            this.fields = fields;
+        }
+
+        public Set<UpdateField> fields() {
+            return fields;
+        }
+    }
 
     public Mono<Void> upsertProducts(List<Product> products) {
         return upsertProducts(products, UpdateMode.FULL);
     }
 
     public Mono<Void> upsertProducts(List<Product> products, UpdateMode mode) {
+        return upsertProducts(products, mode.fields(), null);
+    }
+
+    public Mono<Void> upsertProducts(List<Product> products, Set<UpdateField> fields, String resumeRunId) {
         log.info("upsertProducts invoked with {} items", products == null ? 0 : products.size());
         return Mono.defer(() -> {
             if (products == null || products.isEmpty()) {
                 return Mono.empty();
             }
+            UpsertJournal.Run journal = upsertJournal.open(resumeRunId);
             int safeStart = 0;
             int safeLimit = products.size();
-            List<Product> slice = products.stream().skip(safeStart).limit(safeLimit).toList();
-            AtomicInteger processed = new AtomicInteger();
-            AtomicInteger updated = new AtomicInteger();
-            AtomicInteger created = new AtomicInteger();
-            int total = slice.size();
-            log.info("Upserting {} products (start={} limit={} of {}) with concurrency=5", total, safeStart, safeLimit, products.size());
-            return Flux.fromIterable(slice)
-                    .flatMap(p -> upsertSingle(p, mode, processed, total, updated, created), 4)
-                    .then()
-                    .doFinally(sig -> log.info("ERP upsert finished: total={} updated={} created={}", total, updated.get(), created.get()));
+            List<Product> slice = products.stream().skip(safeStart).limit(safeLimit)
+                    .filter(p -> !journal.isCompleted(p.getSku()))
+                    .toList();
+            UpsertCounters counters = new UpsertCounters(slice.size(), journal);
+            int bulkBatchSize = updateProperties.getBulkBatchSize();
+            log.info("Upserting {} products (start={} limit={} of {} alreadyCompleted={} run={}) fields={} with concurrencyLimit={} bulkBatchSize={} diff={}", counters.total, safeStart, safeLimit, products.size(), journal.completedSkus().size(), journal.runId(), fields, concurrencyLimiter.stats().limit(), bulkBatchSize, updateProperties.isDiffEnabled());
+            // only the zero-stock guard and rows the diff can actually skip need live state, the rest go by the SKU index alone
+            Set<String> stateSkus = new HashSet<>();
+            slice.forEach(p -> {
+                enforceMinQuantity(p);
+                if (p.getSku() != null && needsRemoteState(p, fields)) {
+                    stateSkus.add(p.getSku());
+                }
+            });
+            return variantSkuResolver.resolve(slice.stream().map(Product::getSku).toList(), stateSkus::contains)
+                    .flatMapMany(resolved -> {
+                        List<BulkItem> existing = new ArrayList<>();
+                        List<Product> remaining = new ArrayList<>();
+                        for (Product p : slice) {
+                            VariantInfo info = p.getSku() == null ? null : resolved.get(p.getSku());
+                            if (info != null) {
+                                existing.add(new BulkItem(p, info));
+                            } else {
+                                remaining.add(p);
+                            }
+                        }
+                        // everything is handed to its lane right away so urgent lanes can overtake queued creates
+                        Flux<Void> updates = bulkBatchSize <= 1
+                                ? Flux.fromIterable(existing).flatMap(item -> isolatedUpsert(item.product(), item.info(), fields, counters), Integer.MAX_VALUE)
+                                : updateInLaneBatches(existing, bulkBatchSize, fields, counters);
+                        Flux<Void> creates = updateProperties.getCreateBatchSize() <= 1
+                                ? Flux.fromIterable(remaining).flatMap(p -> isolatedUpsert(p, null, fields, counters), Integer.MAX_VALUE)
+                                : createInBatches(remaining, fields, counters);
+                        return Flux.merge(updates, creates);
+                    })
+                    .then(Mono.defer(() -> retryDeadLetters(fields, counters)))
+                    .then(Mono.defer(() -> counters.deadLetters.isEmpty()
+                            ? Mono.<Void>empty()
+                            : Mono.<Void>error(new IllegalStateException(counters.deadLetters.size() + " products still failing after retry (run="
+                                    + journal.runId() + ", deadLetters=" + journal.deadLetterPath() + ")"))))
+                    .doFinally(sig -> {
+                        skuIndexStore.flush();
+                        journal.close();
+                        if (counters.updated.get() + counters.created.get() > 0 || !counters.deadLetters.isEmpty()) {
+                            catalogSnapshotStore.markStale();
+                        }
+                        log.info("ERP upsert finished: run={} total={} updated={} (full={} partial={}) unchanged={} created={} failed={}",
+                                journal.runId(), counters.total, counters.updated.get(), counters.fullyUpdated.get(), counters.partiallyUpdated.get(),
+                                counters.unchanged.get(), counters.created.get(), counters.deadLetters.size());
+                        log.info("ERP upsert concurrency: {}", concurrencyLimiter.stats());
+                    });
         });
     }
 
-    public record VariantInfo(String variantId, String productId, Boolean published) {
+    private Flux<Void> updateInLaneBatches(List<BulkItem> existing, int bulkBatchSize, Set<UpdateField> fields, UpsertCounters counters) {
+        Map<PriorityLaneScheduler.Lane, List<BulkItem>> existingByLane = new EnumMap<>(PriorityLaneScheduler.Lane.class);
+        existing.forEach(item -> existingByLane.computeIfAbsent(laneFor(item.product(), item.info(), fields), lane -> new ArrayList<>()).add(item));
+        log.info("Upsert lanes: {}", existingByLane.entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue().size()).toList());
+        return Flux.fromIterable(existingByLane.entrySet())
+                .concatMap(entry -> Flux.fromIterable(entry.getValue())
+                        .buffer(bulkBatchSize)
+                        .map(batch -> new LaneBatch(entry.getKey(), batch)))
+                .flatMap(laneBatch -> laneScheduler.submit(laneBatch.lane(), () -> updateExistingBulk(laneBatch.items(), fields, counters))
+                        .onErrorResume(ex -> {
+                            laneBatch.items().forEach(item -> deadLetter(item.product(), "bulk-update", ex, counters));
+                            return Mono.empty();
+                        }), Math.max(1, updateProperties.getBulkConcurrency()));
+    }
+
+    private Flux<Void> createInBatches(List<Product> remaining, Set<UpdateField> fields, UpsertCounters counters) {
+        List<Product> creatable = new ArrayList<>();
+        List<Product> invalid = new ArrayList<>();
+        remaining.forEach(p -> (p.getSku() == null || p.getSku().isBlank() ? invalid : creatable).add(p));
+        int createBatchSize = updateProperties.getCreateBatchSize();
+        log.info("Creating {} new products in batches of {}", creatable.size(), createBatchSize);
+        return Flux.merge(
+                Flux.fromIterable(invalid).flatMap(p -> isolatedUpsert(p, null, fields, counters)),
+                Flux.fromIterable(creatable)
+                        .buffer(createBatchSize)
+                        .flatMap(batch -> laneScheduler.submit(PriorityLaneScheduler.Lane.CREATE, () -> createBulk(batch, counters))
+                                .onErrorResume(ex -> {
+                                    batch.forEach(p -> deadLetter(p, "bulk-create", ex, counters));
+                                    return Mono.empty();
+                                }), Math.max(1, updateProperties.getBulkConcurrency())));
+    }
+
+    public record VariantInfo(String variantId, String productId, Boolean published, VariantState state) {
+    }
+
+    private record BulkItem(Product product, VariantInfo info) {
+    }
+
+    private record LaneBatch(PriorityLaneScheduler.Lane lane, List<BulkItem> items) {
+    }
+
+    private final class BulkRequest {
+        private final GraphqlBatch batch = new GraphqlBatch("mutation", "BulkVariantUpdate");
+        private final Map<String, String> skuByAlias = new HashMap<>();
+        private final List<String> skus = new ArrayList<>();
+        private final List<BulkItem> items = new ArrayList<>();
+
+        void add(BulkItem item, Set<ProductDiff.Change> changes, Set<UpdateField> fields) {
+            Product product = item.product();
+            VariantInfo info = item.info();
+            items.add(item);
+            skus.add(product.getSku());
+            String productId = info.productId() != null ? info.productId() : product.getId();
+            if (changes.contains(ProductDiff.Change.PRODUCT)) {
+                skuByAlias.put(batch.add("productUpdate", Map.of(
+                        "id", GraphqlBatch.argument("ID!", productId),
+                        "input", GraphqlBatch.argument("ProductInput!", helper.buildProductInputObject(product, fields))),
+                        "errors { field message code }"), product.getSku());
+            }
+            if (changes.contains(ProductDiff.Change.PRODUCT_LISTING)) {
+                skuByAlias.put(batch.add("productChannelListingUpdate", Map.of(
+                        "id", GraphqlBatch.argument("ID!", productId),
+                        "input", GraphqlBatch.argument("ProductChannelListingUpdateInput!", helper.buildProductChannelListingUpdateInputObject(product))),
+                        "errors { field message code }"), product.getSku());
+            }
+            if (changes.contains(ProductDiff.Change.VARIANT_LISTING)) {
+                skuByAlias.put(batch.add("productVariantChannelListingUpdate", Map.of(
+                        "id", GraphqlBatch.argument("ID!", info.variantId()),
+                        "input", GraphqlBatch.argument("[ProductVariantChannelListingAddInput!]!", helper.buildProductVariantChannelListingAddInput(product))),
+                        "errors { field message code }"), product.getSku());
+            }
+            if (changes.contains(ProductDiff.Change.STOCKS)) {
+                skuByAlias.put(batch.add("productVariantStocksUpdate", Map.of(
+                        "variantId", GraphqlBatch.argument("ID!", info.variantId()),
+                        "stocks", GraphqlBatch.argument("[StockInput!]!", helper.buildStocksInput(product))),
+                        "errors { field message code }"), product.getSku());
+            }
+        }
+    }
+
+    // a failing product goes to the dead-letter file instead of cancelling the rest of the run
+    private Mono<Void> isolatedUpsert(Product product, VariantInfo info, Set<UpdateField> fields, UpsertCounters counters) {
+        String stage = product.getSku() == null || product.getSku().isBlank() ? "validate" : info != null ? "update" : "create";
+        return laneScheduler.submit(laneFor(product, info, fields), () -> upsertSingle(product, info, fields, counters))
+                .onErrorResume(ex -> {
+                    deadLetter(product, stage, ex, counters);
+                    return Mono.empty();
+                });
+    }
+
+    private PriorityLaneScheduler.Lane laneFor(Product product, VariantInfo info, Set<UpdateField> fields) {
+        if (info == null) {
+            return PriorityLaneScheduler.Lane.CREATE;
+        }
+        enforceMinQuantity(product);
+        Set<ProductDiff.Change> applicable = productDiff.applicable(product, fields);
+        Set<ProductDiff.Change> changes = updateProperties.isDiffEnabled() ? productDiff.changed(product, info.state(), applicable, fields) : applicable;
+        if (changes.contains(ProductDiff.Change.STOCKS)) {
+            return PriorityLaneScheduler.Lane.STOCK;
+        }
+        if (changes.contains(ProductDiff.Change.VARIANT_LISTING)) {
+            return PriorityLaneScheduler.Lane.PRICE;
+        }
+        if (changes.contains(ProductDiff.Change.PRODUCT_LISTING)) {
+            return PriorityLaneScheduler.Lane.PUBLISH;
+        }
+        return PriorityLaneScheduler.Lane.MASTER_DATA;
     }
 
-    private Mono<Void> upsertSingle(Product product, UpdateMode mode, AtomicInteger processed, int total, AtomicInteger updated, AtomicInteger created) {
+    private void deadLetter(Product product, String stage, Throwable error, UpsertCounters counters) {
+        String key = product.getSku() != null ? product.getSku() : "name:" + product.getName();
+        counters.deadLetters.put(key, product);
+        counters.journal.fail(product.getSku(), stage, error);
+    }
+
+    private Mono<Void> retryDeadLetters(Set<UpdateField> fields, UpsertCounters counters) {
+        if (counters.deadLetters.isEmpty()) {
+            return Mono.empty();
+        }
+        List<Product> retry = new ArrayList<>(counters.deadLetters.values());
+        counters.deadLetters.clear();
+        // retried products are counted again by the progress log
+        counters.processed.addAndGet(-retry.size());
+        int retryConcurrency = Math.max(1, updateProperties.getRetryConcurrency());
+        log.info("Retrying {} dead-lettered products (run={} concurrency={})", retry.size(), counters.journal.runId(), retryConcurrency);
+        // the first failure may have created or dropped variants, so look the SKUs up again
+        return variantSkuResolver.resolveRemotely(retry.stream().map(Product::getSku).toList())
+                .flatMapMany(resolved -> Flux.fromIterable(retry)
+                        .flatMap(p -> isolatedUpsert(p, p.getSku() == null ? null : resolved.get(p.getSku()), fields, counters), retryConcurrency))
+                .then()
+                .doFinally(sig -> log.info("Dead-letter retry finished: retried={} stillFailing={}", retry.size(), counters.deadLetters.size()));
+    }
+
+    private Mono<Void> upsertSingle(Product product, VariantInfo info, Set<UpdateField> fields, UpsertCounters counters) {
         log.info("Upsert starting for sku={} name={}", product.getSku(), product.getName());
-        return findVariantBySku(product.getSku())
-                .materialize()
-                .flatMap(signal -> {
-                    if (signal.hasValue()) {
-                        VariantInfo info = signal.get();
+        return Mono.defer(() -> {
+                    if (product.getSku() == null || product.getSku().isBlank()) {
+                        return Mono.error(new IllegalArgumentException("Cannot upsert product without sku name=" + product.getName()));
+                    }
+                    if (info != null) {
                         enforceMinQuantity(product);
-                        boolean skipUnpublishedZeroQty = product.getAvailableQuantity() != null
-                            && product.getAvailableQuantity() == 0
-                            && Boolean.FALSE.equals(info.published());
-                        if (skipUnpublishedZeroQty) {
-                            return Mono.fromRunnable(() -> log.info("Skipping upsert for sku={} name={} (existing unpublished with zero quantity)", product.getSku(), product.getName()));
+                        if (isUnpublishedWithoutStock(product, info)) {
+                            return Mono.fromRunnable(() -> log.info("Skipping upsert for sku={} name={} (existing unpublished with zero quantity)", product.getSku(), product.getName()))
+                                    .thenReturn(UpsertJournal.Outcome.SKIPPED);
                         }
-                        log.info("Existing variant found for sku={} variantId={} productId={} published={}", product.getSku(), info.variantId(), info.productId(), info.published());
-                        return updateExisting(product, info, mode)
-                                .then(Mono.fromRunnable(updated::incrementAndGet))
-                                .then(Mono.fromRunnable(() -> log.info("Upserted existing sku={} variantId={} productId={}", product.getSku(), info.variantId(), info.productId())));
-                    }
-                    if (signal.isOnComplete()) {
-                        log.info("No existing variant for sku={}, creating new", product.getSku());
-                        return createNew(product)
-                                .then(Mono.fromRunnable(created::incrementAndGet))
-                                .then(Mono.fromRunnable(() -> log.info("Created new sku={} name={}", product.getSku(), product.getName())));
-                    }
-                    if (signal.isOnError()) {
-                        return Mono.error(signal.getThrowable());
+                        Set<ProductDiff.Change> changes = changesFor(product, info, fields, counters);
+                        if (changes.isEmpty()) {
+                            return Mono.fromRunnable(() -> log.info("Skipping unchanged sku={} variantId={}", product.getSku(), info.variantId()))
+                                    .thenReturn(UpsertJournal.Outcome.UNCHANGED);
+                        }
+                        log.info("Existing variant found for sku={} variantId={} productId={} published={} changes={}", product.getSku(), info.variantId(), info.productId(), info.published(), changes);
+                        return updateExisting(product, info, changes, fields)
+                                .then(Mono.fromRunnable(counters.updated::incrementAndGet))
+                                .then(Mono.fromRunnable(() -> log.info("Upserted existing sku={} variantId={} productId={}", product.getSku(), info.variantId(), info.productId())))
+                                .thenReturn(UpsertJournal.Outcome.UPDATED);
                     }
-                    return Mono.empty();
+                    log.info("No existing variant for sku={}, creating new", product.getSku());
+                    return createNew(product)
+                            .then(Mono.fromRunnable(counters.created::incrementAndGet))
+                            .then(Mono.fromRunnable(() -> log.info("Created new sku={} name={}", product.getSku(), product.getName())))
+                            .thenReturn(UpsertJournal.Outcome.CREATED);
                 })
+                .doOnNext(outcome -> counters.journal.record(product.getSku(), outcome))
                 .doFinally(sig -> {
-                    int done = processed.incrementAndGet();
-                    if (done % 5 == 0 || done == total) {
-                        log.info("ERP upsert progress: {}/{}", done, total);
+                    int done = counters.processed.incrementAndGet();
+                    if (done % 5 == 0 || done == counters.total) {
+                        log.info("ERP upsert progress: {}/{}", done, counters.total);
                     }
                 })
                 .doOnError(ex -> log.error("Upsert failed for sku={}", product.getSku(), ex))
                 .then();
     }
 
-    private Mono<VariantInfo> findVariantBySku(String sku) {
-        String query = helper.buildProductVariantQuery();
-        Map<String, Object> variables = Map.of("sku", sku);
-        return apiClient.mutation(query, variables)
-                .flatMap(body -> {
-                    try {
-                        JsonNode root = objectMapper.readTree(body);
-                        JsonNode variant = root.path("data").path("productVariant");
-                        if (variant.isMissingNode() || variant.isNull()) {
-                            return Mono.empty();
-                        }
-                        String variantId = variant.path("id").asText(null);
-                        String productId = variant.path("product").path("id").asText(null);
-                        Boolean published = null;
-                        JsonNode listings = variant.path("product").path("channelListings");
-                        if (listings.isArray()) {
-                            for (JsonNode listing : listings) {
-                                if (listing.path("isPublished").isBoolean() && listing.path("isPublished").asBoolean()) {
-                                    published = true;
-                                    break;
-                                }
-                                if (published == null && listing.path("isPublished").isBoolean()) {
-                                    published = false;
-                                }
-                            }
-                        }
-                        if (variantId == null) {
-                            return Mono.empty();
+    private boolean needsRemoteState(Product product, Set<UpdateField> fields) {
+        if (product.getAvailableQuantity() != null && product.getAvailableQuantity() == 0) {
+            return true;
+        }
+        return updateProperties.isDiffEnabled() && !productDiff.applicable(product, fields).isEmpty();
+    }
+
+    private boolean isUnpublishedWithoutStock(Product product, VariantInfo info) {
+        return product.getAvailableQuantity() != null
+            && product.getAvailableQuantity() == 0
+            && Boolean.FALSE.equals(info.published());
+    }
+
+    private Set<ProductDiff.Change> changesFor(Product product, VariantInfo info, Set<UpdateField> fields, UpsertCounters counters) {
+        Set<ProductDiff.Change> applicable = productDiff.applicable(product, fields);
+        if (!updateProperties.isDiffEnabled()) {
+            return applicable;
+        }
+        Set<ProductDiff.Change> changes = productDiff.changed(product, info.state(), applicable, fields);
+        if (changes.isEmpty()) {
+            counters.unchanged.incrementAndGet();
+        } else if (changes.size() < applicable.size()) {
+            counters.partiallyUpdated.incrementAndGet();
+        } else {
+            counters.fullyUpdated.incrementAndGet();
+        }
+        return changes;
+    }
+
+    private Mono<Void> updateExistingBulk(List<BulkItem> items, Set<UpdateField> fields, UpsertCounters counters) {
+        // every request stays a few dozen mutations long so it finishes well inside the read timeout
+        int maxOperations = Math.max(1, updateProperties.getBulkMaxOperations());
+        List<BulkRequest> requests = new ArrayList<>();
+        BulkRequest request = new BulkRequest();
+        for (BulkItem item : items) {
+            Product product = item.product();
+            VariantInfo info = item.info();
+            enforceMinQuantity(product);
+            if (isUnpublishedWithoutStock(product, info)) {
+                log.info("Skipping upsert for sku={} name={} (existing unpublished with zero quantity)", product.getSku(), product.getName());
+                counters.journal.record(product.getSku(), UpsertJournal.Outcome.SKIPPED);
+                continue;
+            }
+            Set<ProductDiff.Change> changes = changesFor(product, info, fields, counters);
+            if (changes.isEmpty()) {
+                counters.journal.record(product.getSku(), UpsertJournal.Outcome.UNCHANGED);
+                continue;
+            }
+            if (!request.batch.isEmpty() && request.batch.size() + changes.size() > maxOperations) {
+                requests.add(request);
+                request = new BulkRequest();
+            }
+            request.add(item, changes, fields);
+        }
+        if (!request.batch.isEmpty()) {
+            requests.add(request);
+        }
+        int processedWithoutRequest = items.size() - requests.stream().mapToInt(r -> r.items.size()).sum();
+        if (processedWithoutRequest > 0) {
+            counters.processed.addAndGet(processedWithoutRequest);
+        }
+        return Flux.fromIterable(requests)
+                .concatMap(bulkRequest -> sendBulkRequest(bulkRequest, counters))
+                .then();
+    }
+
+    private Mono<Void> sendBulkRequest(BulkRequest request, UpsertCounters counters) {
+        return apiClient.mutation(request.batch.document(), request.batch.variables())
+                .map(body -> readBulkFailures(body, request.skuByAlias, request.skus))
+                .doOnNext(failedSkus -> {
+                    counters.updated.addAndGet(request.skus.size() - failedSkus.size());
+                    for (BulkItem item : request.items) {
+                        String sku = item.product().getSku();
+                        if (failedSkus.containsKey(sku)) {
+                            deadLetter(item.product(), "bulk-update", new IllegalStateException(failedSkus.get(sku)), counters);
+                        } else {
+                            counters.journal.record(sku, UpsertJournal.Outcome.UPDATED);
                         }
-                        return Mono.just(new VariantInfo(variantId, productId, published));
-                    } catch (Exception e) {
-                        return Mono.error(e);
                     }
-                });
+                    int done = counters.processed.addAndGet(request.items.size());
+                    log.info("Bulk updated {} existing products in {} mutations (failed={}) progress: {}/{}", request.skus.size(), request.batch.size(), failedSkus.size(), done, counters.total);
+                })
+                .doOnError(ex -> log.error("Bulk update failed for skus={}", request.skus, ex))
+                .onErrorResume(ex -> {
+                    // later requests of the same lane batch still go out
+                    request.items.forEach(item -> deadLetter(item.product(), "bulk-update", ex, counters));
+                    counters.processed.addAndGet(request.items.size());
+                    return Mono.empty();
+                })
+                .then();
     }
 
-    private Mono<Void> updateExisting(Product product, VariantInfo info, UpdateMode mode) {
-        String resolvedProductId = info.productId() != null ? info.productId() : product.getId();
-        Mono<Void> chain;
-        if (mode == UpdateMode.SKIP_PRODUCT_MASTER_DATA) {
-            chain = Mono.empty();
-        } else {
-            chain = updateProduct(product, resolvedProductId);
+    private Map<String, String> readBulkFailures(String body, Map<String, String> skuByAlias, List<String> skus) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(body);
+        } catch (Exception e) {
+            log.error("Unreadable bulk update response for skus={}", skus, e);
+            return failAll(skus, "Unreadable bulk update response: " + e.getMessage());
+        }
+        JsonNode data = root.path("data");
+        if (!data.isObject()) {
+            log.error("Bulk update rejected for skus={} errors={}", skus, root.path("errors"));
+            return failAll(skus, "Bulk update rejected: " + root.path("errors"));
         }
-        return chain
-                .then(updateProductChannelListing(product, resolvedProductId))
-                .then(updateVariantChannelListing(product, info.variantId()))
-                .then(updateVariantStocks(product, info.variantId()));
+        Map<String, String> failedSkus = new HashMap<>();
+        JsonNode topLevelErrors = root.path("errors");
+        skuByAlias.forEach((alias, sku) -> {
+            JsonNode result = data.path(alias);
+            invalidateIfMissing(sku, result);
+            // a field that raised a top-level error comes back as a null alias
+            if (!result.isObject()) {
+                List<String> messages = errorsFor(alias, topLevelErrors);
+                failedSkus.putIfAbsent(sku, "No result for " + alias + ": " + messages);
+                log.error("Bulk update returned no result sku={} alias={} errors={}", sku, alias, messages);
+                return;
+            }
+            JsonNode errors = result.path("errors");
+            if (errors.isArray() && !errors.isEmpty()) {
+                failedSkus.putIfAbsent(sku, errors.toString());
+                errors.forEach(error -> log.error("Bulk update error sku={} field={} message={}", sku, error.path("field").asText(null), error.path("message").asText(null)));
+            }
+        });
+        return failedSkus;
     }
 
-    private Mono<Void> updateProduct(Product product, String productId) {
-        String mutation = "mutation ProductUpdate($id: ID!, $input: ProductInput!) {" +
-                "  productUpdate(id: $id, input: $input) { product { id } errors { field message } }" +
-                "}";
+    private List<String> errorsFor(String alias, JsonNode errors) {
+        List<String> messages = new ArrayList<>();
+        for (JsonNode error : errors) {
+            if (alias.equals(error.path("path").path(0).asText(null))) {
+                messages.add(error.path("message").asText(null));
+            }
+        }
+        return messages;
+    }
 
-        Map<String, Object> input = helper.buildProductInputObject(product);
+    private Map<String, String> failAll(List<String> skus, String reason) {
+        Map<String, String> failedSkus = new HashMap<>();
+        skus.forEach(sku -> failedSkus.put(sku, reason));
+        return failedSkus;
+    }
 
-        Map<String, Object> variables = new HashMap<>();
-        variables.put("id", productId);
-        variables.put("input", input);
+    private void invalidateIfMissing(String sku, JsonNode result) {
+        boolean notFound = result == null || result.isNull() || result.isMissingNode();
+        if (!notFound) {
+            for (JsonNode error : result.path("errors")) {
+                notFound |= "NOT_FOUND".equals(error.path("code").asText(null));
+            }
+        }
+        if (notFound) {
+            skuIndexStore.invalidate(sku);
+        }
+    }
+
+    // a payload with errors means Saleor rejected the write, so the product stays failed and dead-lettered
+    private Mono<Void> requireNoErrors(Product product, String mutation, JsonNode result) {
+        invalidateIfMissing(product.getSku(), result);
+        JsonNode errors = result.path("errors");
+        if (errors.isArray() && !errors.isEmpty()) {
+            log.error("{} rejected for sku={} errors={}", mutation, product.getSku(), errors);
+            return Mono.error(new IllegalStateException(mutation + " rejected for sku=" + product.getSku() + " errors=" + errors));
+        }
+        return Mono.empty();
+    }
 
-        return apiClient.mutation(mutation, variables).then();
+    private Mono<Void> updateExisting(Product product, VariantInfo info, Set<ProductDiff.Change> changes, Set<UpdateField> fields) {
+        String resolvedProductId = info.productId() != null ? info.productId() : product.getId();
+        // listings and stocks are separate resources; they go out first so slow master data never delays them
+        return Mono.when(
+                        changes.contains(ProductDiff.Change.STOCKS) ? updateVariantStocks(product, info.variantId()) : Mono.<Void>empty(),
+                        changes.contains(ProductDiff.Change.VARIANT_LISTING) ? updateVariantChannelListing(product, info.variantId()) : Mono.<Void>empty(),
+                        changes.contains(ProductDiff.Change.PRODUCT_LISTING) ? updateProductChannelListing(product, resolvedProductId) : Mono.<Void>empty())
+                .then(changes.contains(ProductDiff.Change.PRODUCT) ? updateProduct(product, resolvedProductId, fields) : Mono.<Void>empty());
+    }
+
+    private Mono<Void> updateProduct(Product product, String productId, Set<UpdateField> fields) {
+        return graphqlMultiplexer.mutate("productUpdate", Map.of(
+                "id", GraphqlBatch.argument("ID!", productId),
+                "input", GraphqlBatch.argument("ProductInput!", helper.buildProductInputObject(product, fields))),
+                "product { id } errors { field message code }")
+                .flatMap(result -> requireNoErrors(product, "productUpdate", result));
     }
 
     private Mono<Void> updateProductChannelListing(Product product, String productId) {
@@ -168,61 +508,104 @@ public class ProductsUpdateService {
         if (product.getChannelId() == null) {
             return Mono.empty();
         }
-        String mutation = "mutation productChannelListingUpdate($id: ID!, $input: ProductChannelListingUpdateInput!) {" +
-                "  productChannelListingUpdate(id: $id, input: $input) { product { id } errors { field message } }" +
-                "}";
-
-        Map<String, Object> variables = new HashMap<>();
-        variables.put("id", productId);
-        variables.put("input", helper.buildProductChannelListingUpdateInputObject(product));
-
-        return apiClient.mutation(mutation, variables).then();
+        return graphqlMultiplexer.mutate("productChannelListingUpdate", Map.of(
+                "id", GraphqlBatch.argument("ID!", productId),
+                "input", GraphqlBatch.argument("ProductChannelListingUpdateInput!", helper.buildProductChannelListingUpdateInputObject(product))),
+                "product { id } errors { field message code }")
+                .flatMap(result -> requireNoErrors(product, "productChannelListingUpdate", result));
     }
 
     private Mono<Void> updateVariantChannelListing(Product product, String variantId) {
         if (product.getChannelId() == null || product.getPrice() == null) {
             return Mono.empty();
         }
-        String mutation = "mutation productVariantChannelListingUpdate($id: ID!, $input: [ProductVariantChannelListingAddInput!]!) {" +
-                "  productVariantChannelListingUpdate(id: $id, input: $input) { variant { id } errors { field message } }" +
-                "}";
-
-        Map<String, Object> variables = new HashMap<>();
-        variables.put("id", variantId);
-        variables.put("input", helper.buildProductVariantChannelListingAddInput(product));
-
-        return apiClient.mutation(mutation, variables).then();
+        return graphqlMultiplexer.mutate("productVariantChannelListingUpdate", Map.of(
+                "id", GraphqlBatch.argument("ID!", variantId),
+                "input", GraphqlBatch.argument("[ProductVariantChannelListingAddInput!]!", helper.buildProductVariantChannelListingAddInput(product))),
+                "variant { id } errors { field message code }")
+                .flatMap(result -> requireNoErrors(product, "productVariantChannelListingUpdate", result));
     }
 
     private Mono<Void> updateVariantStocks(Product product, String variantId) {
         if (product.getWarehouseId() == null) {
             return Mono.empty();
         }
-        String mutation = "mutation productVariantStocksUpdate($variantId: ID!, $stocks: [StockInput!]!) {" +
-                "  productVariantStocksUpdate(variantId: $variantId, stocks: $stocks) { productVariant { id } errors { field message } }" +
-                "}";
-
-        Map<String, Object> variables = new HashMap<>();
-        variables.put("variantId", variantId);
-        variables.put("stocks", helper.buildStocksInput(product));
-
-        return apiClient.mutation(mutation, variables).then();
+        return graphqlMultiplexer.mutate("productVariantStocksUpdate", Map.of(
+                "variantId", GraphqlBatch.argument("ID!", variantId),
+                "stocks", GraphqlBatch.argument("[StockInput!]!", helper.buildStocksInput(product))),
+                "productVariant { id } errors { field message code }")
+                .flatMap(result -> requireNoErrors(product, "productVariantStocksUpdate", result));
     }
 
     private Mono<Void> createNew(Product product) {
         enforceMinQuantity(product);
         return createProduct(product)
-                .flatMap(productId -> updateProductChannelListing(product, productId)
-                        .then(createVariant(product, productId)
-                                .flatMap(variantId -> updateVariantChannelListing(product, variantId)
-                                        .then(updateVariantStocks(product, variantId))
-                                )
-                        )
-                )
+                .flatMap(productId -> {
+                    Mono<String> variant = createVariant(product, productId)
+                            .doOnNext(variantId -> skuIndexStore.put(product.getSku(), new VariantInfo(variantId, productId, product.getPublished(), null)))
+                            .cache();
+                    // a variant price is rejected with PRODUCT_NOT_ASSIGNED_TO_CHANNEL until the product is listed in that channel
+                    return Mono.when(
+                            updateProductChannelListing(product, productId),
+                            variant.flatMap(variantId -> updateVariantStocks(product, variantId)))
+                            .then(variant.flatMap(variantId -> updateVariantChannelListing(product, variantId)));
+                })
                 .doOnError(ex -> log.error("Create flow failed for sku={} reason={}", product.getSku(), ex.getMessage(), ex))
                 .then();
     }
 
+    private Mono<Void> createBulk(List<Product> products, UpsertCounters counters) {
+        String mutation = "mutation ProductBulkCreate($products: [ProductBulkCreateInput!]!) {" +
+                "  productBulkCreate(products: $products, errorPolicy: REJECT_FAILED_ROWS) {" +
+                "    count results { product { id variants { id sku } } errors { path message code } } errors { path message code }" +
+                "  }" +
+                "}";
+        List<Map<String, Object>> inputs = new ArrayList<>();
+        for (Product product : products) {
+            enforceMinQuantity(product);
+            inputs.add(helper.buildProductBulkCreateInput(product));
+        }
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("products", inputs);
+        return apiClient.mutation(mutation, variables)
+                .flatMap(body -> {
+                    JsonNode result;
+                    try {
+                        result = objectMapper.readTree(body).path("data").path("productBulkCreate");
+                    } catch (Exception e) {
+                        return Mono.error(e);
+                    }
+                    if (!result.path("results").isArray()) {
+                        return Mono.error(new IllegalStateException("productBulkCreate rejected: " + body));
+                    }
+                    // results come back in input order
+                    JsonNode results = result.path("results");
+                    int created = 0;
+                    for (int i = 0; i < products.size(); i++) {
+                        Product product = products.get(i);
+                        JsonNode row = results.path(i);
+                        String productId = row.path("product").path("id").asText(null);
+                        String variantId = null;
+                        for (JsonNode variant : row.path("product").path("variants")) {
+                            if (product.getSku().equals(variant.path("sku").asText(null))) {
+                                variantId = variant.path("id").asText(null);
+                            }
+                        }
+                        if (productId == null || variantId == null || !row.path("errors").isEmpty()) {
+                            deadLetter(product, "bulk-create", new IllegalStateException("productBulkCreate row errors=" + row.path("errors")), counters);
+                            continue;
+                        }
+                        created++;
+                        skuIndexStore.put(product.getSku(), new VariantInfo(variantId, productId, product.getPublished(), null));
+                        counters.journal.record(product.getSku(), UpsertJournal.Outcome.CREATED);
+                    }
+                    counters.created.addAndGet(created);
+                    int done = counters.processed.addAndGet(products.size());
+                    log.info("Bulk created {} of {} new products (count={}) progress: {}/{}", created, products.size(), result.path("count").asInt(), done, counters.total);
+                    return Mono.<Void>empty();
+                });
+    }
+
     private Mono<String> createProduct(Product product) {
         String mutation = "mutation ProductCreate($input: ProductCreateInput!) {" +
                 "  productCreate(input: $input) { product { id variants { id } } errors { field message } }" +
@@ -283,7 +666,7 @@ public class ProductsUpdateService {
         int total = products.size();
         log.info("Starting rating-only update for {} products", total);
         return Flux.fromIterable(products)
-            .flatMap(this::updateSingleRating, 4)
+            .flatMap(p -> concurrencyLimiter.run(() -> updateSingleRating(p)), concurrencyLimiter.maxLimit())
             .doOnNext(p -> {
                 int done = processed.incrementAndGet();
                 if (done % 10 == 0 || done == total) {
@@ -291,7 +674,80 @@ public class ProductsUpdateService {
                 }
             })
             .then()
-            .doFinally(sig -> log.info("Rating-only update finished: total={} processed={} signal={}", total, processed.get(), sig));
+            .doFinally(sig -> {
+                catalogSnapshotStore.markStale();
+                log.info("Rating-only update finished: total={} processed={} signal={} concurrency={}", total, processed.get(), sig, concurrencyLimiter.stats());
+            });
+    }
+
+    public record RatingSyncResult(int changed, int skipped, int failed) {
+    }
+
+    public Mono<RatingSyncResult> syncRatings(List<Product> products, Map<String, Double> currentRatings) {
+        if (products == null || products.isEmpty()) {
+            return Mono.just(new RatingSyncResult(0, 0, 0));
+        }
+        List<Product> changed = new ArrayList<>();
+        int skipped = 0;
+        for (Product product : products) {
+            Double current = currentRatings.get(product.getId());
+            if (product.getId() == null || product.getRating() == null
+                || (current != null && Math.abs(current - product.getRating()) < RATING_TOLERANCE)) {
+                skipped++;
+            } else {
+                changed.add(product);
+            }
+        }
+        int skippedCount = skipped;
+        int batchSize = Math.max(1, Math.min(updateProperties.getRatingBatchSize(), updateProperties.getBulkMaxOperations()));
+        log.info("Syncing ratings for {} products (changed={} skipped={} batchSize={})", products.size(), changed.size(), skippedCount, batchSize);
+        return Flux.fromIterable(changed)
+            .buffer(batchSize)
+            .flatMap(batch -> concurrencyLimiter.run(() -> writeRatingBatch(batch))
+                .onErrorResume(ex -> {
+                    log.error("Rating batch failed for {} products", batch.size(), ex);
+                    return Mono.just(batch.size());
+                }), Math.max(1, updateProperties.getBulkConcurrency()))
+            .reduce(0, Integer::sum)
+            .doFinally(sig -> {
+                if (!changed.isEmpty()) {
+                    catalogSnapshotStore.markStale();
+                }
+            })
+            .map(failed -> new RatingSyncResult(changed.size() - failed, skippedCount, failed))
+            .doOnNext(result -> log.info("Rating sync finished: changed={} skipped={} failed={} concurrency={}",
+                result.changed(), result.skipped(), result.failed(), concurrencyLimiter.stats()));
+    }
+
+    private Mono<Integer> writeRatingBatch(List<Product> products) {
+        GraphqlBatch batch = new GraphqlBatch("mutation", "RatingSync");
+        Map<String, Product> productByAlias = new HashMap<>();
+        for (Product product : products) {
+            productByAlias.put(batch.add("productUpdate", Map.of(
+                    "id", GraphqlBatch.argument("ID!", product.getId()),
+                    "input", GraphqlBatch.argument("ProductInput!", Map.of("rating", product.getRating()))),
+                    "errors { field message }"), product);
+        }
+        return apiClient.mutation(batch.document(), batch.variables())
+            .map(body -> {
+                JsonNode data;
+                try {
+                    data = objectMapper.readTree(body).path("data");
+                } catch (Exception e) {
+                    log.error("Unreadable rating batch response for {} products", products.size(), e);
+                    return products.size();
+                }
+                int failed = 0;
+                for (Map.Entry<String, Product> entry : productByAlias.entrySet()) {
+                    JsonNode result = data.path(entry.getKey());
+                    if (!result.isObject() || !result.path("errors").isEmpty()) {
+                        failed++;
+                        log.error("Failed to update rating for id={} sku={} rating={} errors={}", entry.getValue().getId(),
+                            entry.getValue().getSku(), entry.getValue().getRating(), result.path("errors"));
+                    }
+                }
+                return failed;
+            });
     }
 
     private Mono<Product> updateSingleRating(Product product) {
@@ -299,15 +755,12 @@ public class ProductsUpdateService {
             log.warn("Skipping rating update for product without id/rating sku={} id={} rating={}", product.getSku(), product.getId(), product.getRating());
             return Mono.just(product);
         }
-        String mutation = "mutation ProductUpdateRating($id: ID!, $input: ProductInput!) {" +
-            "  productUpdate(id: $id, input: $input) { product { id rating } errors { field message } }" +
-            "}";
-        Map<String, Object> variables = new HashMap<>();
         Map<String, Object> input = new HashMap<>();
         input.put("rating", product.getRating());
-        variables.put("id", product.getId());
-        variables.put("input", input);
-        return apiClient.mutation(mutation, variables)
+        return graphqlMultiplexer.mutate("productUpdate", Map.of(
+                "id", GraphqlBatch.argument("ID!", product.getId()),
+                "input", GraphqlBatch.argument("ProductInput!", input)),
+                "product { id rating } errors { field message }")
             .then(Mono.just(product))
             .doOnError(ex -> log.error("Failed to update rating for id={} sku={} rating={}", product.getId(), product.getSku(), product.getRating(), ex));
     }
@@ -336,4 +789,21 @@ public class ProductsUpdateService {
         }
         return 5;
     }
+
+    private static final class UpsertCounters {
+        private final int total;
+        private final UpsertJournal.Run journal;
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger updated = new AtomicInteger();
+        private final AtomicInteger created = new AtomicInteger();
+        private final AtomicInteger unchanged = new AtomicInteger();
+        private final AtomicInteger partiallyUpdated = new AtomicInteger();
+        private final AtomicInteger fullyUpdated = new AtomicInteger();
+        private final Map<String, Product> deadLetters = new ConcurrentHashMap<>();
+
+        UpsertCounters(int total, UpsertJournal.Run journal) {
+            this.total = total;
+            this.journal = journal;
+        }
+    }
 }
@@ -0,0 +1,105 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moona.productsmanager.moonaproductsmanager.config.UpdateProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Component
+public class SkuIndexStore {
+    private static final Logger log = LoggerFactory.getLogger(SkuIndexStore.class);
+
+    private final UpdateProperties updateProperties;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    public SkuIndexStore(UpdateProperties updateProperties, ObjectMapper objectMapper) {
+        this.updateProperties = updateProperties;
+        this.objectMapper = objectMapper;
+        load();
+    }
+
+    public Optional<ProductsUpdateService.VariantInfo> get(String sku) {
+        Entry entry = entries.get(sku);
+        return entry == null
+            ? Optional.empty()
+            : Optional.of(new ProductsUpdateService.VariantInfo(entry.variantId(), entry.productId(), null, null));
+    }
+
+    public void put(String sku, ProductsUpdateService.VariantInfo info) {
+        if (sku == null || info == null || info.variantId() == null) {
+            return;
+        }
+        Entry entry = new Entry(info.variantId(), info.productId());
+        if (!entry.equals(entries.put(sku, entry))) {
+            dirty.set(true);
+        }
+    }
+
+    public void putAll(Map<String, ProductsUpdateService.VariantInfo> resolved) {
+        resolved.forEach(this::put);
+    }
+
+    public void invalidate(String sku) {
+        if (sku != null && entries.remove(sku) != null) {
+            dirty.set(true);
+            log.info("Dropped sku={} from SKU index", sku);
+        }
+    }
+
+    public synchronized void flush() {
+        Path path = indexPath();
+        if (path == null || !dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), entries);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Saved SKU index {} (entries={})", path, entries.size());
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("Failed to save SKU index {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void load() {
+        Path path = indexPath();
+        if (path == null || !Files.isRegularFile(path)) {
+            return;
+        }
+        try {
+            entries.putAll(objectMapper.readValue(path.toFile(), new TypeReference<Map<String, Entry>>() { }));
+            log.info("Loaded SKU index {} (entries={})", path, entries.size());
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable SKU index {}: {}", path, e.getMessage());
+        }
+    }
+
+    private Path indexPath() {
+        String path = updateProperties.getSkuIndexPath();
+        return path == null || path.isBlank() ? null : Path.of(path);
+    }
+
+    // publish state changes outside of upserts, so only the ids are worth keeping between runs
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record Entry(String variantId, String productId) {
+    }
+}
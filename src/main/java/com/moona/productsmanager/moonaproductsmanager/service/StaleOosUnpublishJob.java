@@ -2,12 +2,16 @@ package com.moona.productsmanager.moonaproductsmanager.service;
 
 import com.moona.productsmanager.moonaproductsmanager.config.ExportProperties;
 import com.moona.productsmanager.moonaproductsmanager.model.Product;
+import com.moona.productsmanager.moonaproductsmanager.model.UpdateField;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class StaleOosUnpublishJob {
@@ -16,13 +20,16 @@ public class StaleOosUnpublishJob {
     private final ProductsExportService productsExportService;
     private final ProductsUpdateService productsUpdateService;
     private final ExportProperties exportProperties;
+    private final ProductWriteBehindQueue writeBehindQueue;
 
     public StaleOosUnpublishJob(ProductsExportService productsExportService,
                                 ProductsUpdateService productsUpdateService,
-                                ExportProperties exportProperties) {
+                                ExportProperties exportProperties,
+                                ProductWriteBehindQueue writeBehindQueue) {
         this.productsExportService = productsExportService;
         this.productsUpdateService = productsUpdateService;
         this.exportProperties = exportProperties;
+        this.writeBehindQueue = writeBehindQueue;
     }
 
     public Mono<String> run(String updatedBeforeIso, int pageSize, boolean dryRun) {
@@ -30,6 +37,10 @@ public class StaleOosUnpublishJob {
     }
 
     public Mono<String> run(String updatedBeforeIso, int pageSize, boolean dryRun, Boolean published) {
+        return run(updatedBeforeIso, pageSize, dryRun, published, null);
+    }
+
+    public Mono<String> run(String updatedBeforeIso, int pageSize, boolean dryRun, Boolean published, String resumeRunId) {
         String cutoff = updatedBeforeIso != null && !updatedBeforeIso.isBlank()
                 ? updatedBeforeIso
                 : productsExportService.defaultUpdatedBeforeIso(14);
@@ -38,8 +49,7 @@ public class StaleOosUnpublishJob {
         log.info("Stale OOS unpublish starting (channel={}, cutoff={}, pageSize={}, dryRun={}, published={})",
                 exportProperties.getChannel(), cutoff, effectivePageSize, dryRun, published);
 
-        return productsExportService.fetchAllProducts(null, cutoff, null, published)
-                .map(this::summarizeAndFilter)
+        return summarize(productsExportService.streamProducts(ProductProjection.STALE_OOS, null, cutoff, null, published, effectivePageSize))
                 .flatMap(summary -> {
                     log.info("staleOosUnpublish.summary fetched={} unpublishedAlready={} candidates={} dryRun={} published={}",
                             summary.totalFetched, summary.alreadyUnpublished, summary.candidates.size(), dryRun, published);
@@ -52,7 +62,10 @@ public class StaleOosUnpublishJob {
                                 p.setChannelId("Q2hhbm5lbDo1"); // Ramallah
                             })
                             .toList();
-                    return productsUpdateService.upsertProducts(toUpdate, ProductsUpdateService.UpdateMode.FULL)
+                    Mono<Void> write = resumeRunId == null
+                            ? writeBehindQueue.submit(toUpdate, EnumSet.of(UpdateField.PUBLISH))
+                            : productsUpdateService.upsertProducts(toUpdate, EnumSet.of(UpdateField.PUBLISH), resumeRunId);
+                    return write
                             .then(Mono.fromSupplier(() -> "Unpublished " + toUpdate.size() + " products (fetched=" + summary.totalFetched + ")"))
                             .doOnSuccess(msg -> {
                                 List<String> skus = toUpdate.stream().map(Product::getSku).toList();
@@ -62,21 +75,26 @@ public class StaleOosUnpublishJob {
                 });
     }
 
-    private Summary summarizeAndFilter(List<Product> products) {
-        int total = products == null ? 0 : products.size();
-        long alreadyUnpublished = products == null ? 0 : products.stream().filter(p -> Boolean.FALSE.equals(p.getPublished())).count();
-        List<Product> candidates = filterCandidates(products);
-        return new Summary(total, (int) alreadyUnpublished, candidates);
+    private Mono<Summary> summarize(Flux<Product> products) {
+        return Mono.defer(() -> {
+            AtomicInteger total = new AtomicInteger();
+            AtomicInteger alreadyUnpublished = new AtomicInteger();
+            return products
+                    .doOnNext(p -> {
+                        total.incrementAndGet();
+                        if (Boolean.FALSE.equals(p.getPublished())) {
+                            alreadyUnpublished.incrementAndGet();
+                        }
+                    })
+                    .filter(this::isCandidate)
+                    .collectList()
+                    .map(candidates -> new Summary(total.get(), alreadyUnpublished.get(), candidates));
+        });
     }
 
-    private List<Product> filterCandidates(List<Product> products) {
-        if (products == null) {
-            return List.of();
-        }
-        return products.stream()
-                .filter(p -> p.getAvailableQuantity() != null && p.getAvailableQuantity() <= 0)
-                .filter(p -> Boolean.TRUE.equals(p.getPublished()))
-                .toList();
+    private boolean isCandidate(Product p) {
+        return p.getAvailableQuantity() != null && p.getAvailableQuantity() <= 0
+                && Boolean.TRUE.equals(p.getPublished());
     }
 
     private record Summary(int totalFetched, int alreadyUnpublished, List<Product> candidates) {
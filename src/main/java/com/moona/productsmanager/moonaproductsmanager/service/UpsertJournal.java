@@ -0,0 +1,191 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moona.productsmanager.moonaproductsmanager.config.UpdateProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+public class UpsertJournal {
+    private static final Logger log = LoggerFactory.getLogger(UpsertJournal.class);
+
+    private static final DateTimeFormatter RUN_ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final UpdateProperties updateProperties;
+    private final ObjectMapper objectMapper;
+
+    public UpsertJournal(UpdateProperties updateProperties, ObjectMapper objectMapper) {
+        this.updateProperties = updateProperties;
+        this.objectMapper = objectMapper;
+    }
+
+    public enum Outcome {UPDATED, CREATED, UNCHANGED, SKIPPED, FAILED}
+
+    public Run open(String resumeRunId) {
+        Path dir = journalDir();
+        boolean resuming = resumeRunId != null && !resumeRunId.isBlank();
+        // write-behind can start one run per mask group within the same millisecond, so new ids carry a random suffix
+        String runId = resuming ? resumeRunId : RUN_ID_FORMAT.format(LocalDateTime.now())
+            + "-" + Integer.toHexString(ThreadLocalRandom.current().nextInt(0x1000, 0x10000));
+        if (dir == null) {
+            if (resuming) {
+                throw new IllegalStateException("Cannot resume run " + runId + ": update.journal-dir is not set");
+            }
+            return new Run(runId, Map.of(), null, null);
+        }
+        Path path = dir.resolve(runId + ".jsonl");
+        Path deadLetterPath = dir.resolve(runId + ".dead-letter.jsonl");
+        try {
+            Map<String, Outcome> completed = new ConcurrentHashMap<>();
+            if (resuming) {
+                if (!Files.isRegularFile(path)) {
+                    throw new IllegalArgumentException("Unknown upsert run " + runId + " (no journal at " + path + ")");
+                }
+                readCompleted(path, completed);
+                log.info("Resuming upsert run {} from {} (completed={})", runId, path, completed.size());
+            } else {
+                log.info("Starting upsert run {} (journal={})", runId, path);
+            }
+            Files.createDirectories(dir);
+            BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return new Run(runId, completed, writer, deadLetterPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open upsert journal " + path, e);
+        }
+    }
+
+    private void readCompleted(Path path, Map<String, Outcome> completed) throws IOException {
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+            Entry entry;
+            try {
+                entry = objectMapper.readValue(line, Entry.class);
+            } catch (IOException e) {
+                // a kill mid-write can leave a truncated last line
+                log.warn("Ignoring unreadable journal line in {}: {}", path, e.getMessage());
+                continue;
+            }
+            if (entry.outcome() == Outcome.FAILED) {
+                completed.remove(entry.sku());
+            } else {
+                completed.put(entry.sku(), entry.outcome());
+            }
+        }
+    }
+
+    private Path journalDir() {
+        String dir = updateProperties.getJournalDir();
+        return dir == null || dir.isBlank() ? null : Path.of(dir);
+    }
+
+    private record Entry(String sku, Outcome outcome, String at) {
+    }
+
+    private record DeadLetter(String sku, String stage, String error, String at) {
+    }
+
+    public final class Run implements AutoCloseable {
+        private final String runId;
+        private final Map<String, Outcome> completed;
+        private final BufferedWriter writer;
+        private final Path deadLetterPath;
+        private BufferedWriter deadLetterWriter;
+
+        private Run(String runId, Map<String, Outcome> completed, BufferedWriter writer, Path deadLetterPath) {
+            this.runId = runId;
+            this.completed = completed;
+            this.writer = writer;
+            this.deadLetterPath = deadLetterPath;
+        }
+
+        public String runId() {
+            return runId;
+        }
+
+        public boolean isCompleted(String sku) {
+            return sku != null && completed.containsKey(sku);
+        }
+
+        public Set<String> completedSkus() {
+            return completed.keySet();
+        }
+
+        public Path deadLetterPath() {
+            return deadLetterPath;
+        }
+
+        public void record(String sku, Outcome outcome) {
+            if (writer == null || sku == null) {
+                return;
+            }
+            try {
+                String line = objectMapper.writeValueAsString(new Entry(sku, outcome, Instant.now().toString()));
+                synchronized (this) {
+                    writer.write(line);
+                    writer.newLine();
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                log.warn("Failed to journal sku={} outcome={} run={}: {}", sku, outcome, runId, e.getMessage());
+            }
+        }
+
+        public void fail(String sku, String stage, Throwable error) {
+            String message = error.getMessage() != null ? error.getMessage() : error.getClass().getName();
+            log.error("Dead-lettered sku={} stage={} run={}: {}", sku, stage, runId, message);
+            record(sku, Outcome.FAILED);
+            if (deadLetterPath == null) {
+                return;
+            }
+            try {
+                String line = objectMapper.writeValueAsString(new DeadLetter(sku, stage, message, Instant.now().toString()));
+                synchronized (this) {
+                    if (deadLetterWriter == null) {
+                        deadLetterWriter = Files.newBufferedWriter(deadLetterPath, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                    }
+                    deadLetterWriter.write(line);
+                    deadLetterWriter.newLine();
+                    deadLetterWriter.flush();
+                }
+            } catch (IOException e) {
+                log.warn("Failed to dead-letter sku={} stage={} run={}: {}", sku, stage, runId, e.getMessage());
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+                if (deadLetterWriter != null) {
+                    deadLetterWriter.close();
+                }
+            } catch (IOException e) {
+                log.warn("Failed to close upsert journal run={}: {}", runId, e.getMessage());
+            }
+        }
+    }
+}
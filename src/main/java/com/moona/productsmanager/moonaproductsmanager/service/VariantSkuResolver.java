@@ -0,0 +1,228 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moona.productsmanager.moonaproductsmanager.config.UpdateProperties;
+import com.moona.productsmanager.moonaproductsmanager.util.Helper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+@Component
+public class VariantSkuResolver {
+    private static final Logger log = LoggerFactory.getLogger(VariantSkuResolver.class);
+
+    // Saleor caps connection pages at 100 nodes
+    private static final int MAX_BATCH_SIZE = 100;
+
+    private final ApiClient apiClient;
+    private final Helper helper;
+    private final ObjectMapper objectMapper;
+    private final UpdateProperties updateProperties;
+    private final SkuIndexStore skuIndexStore;
+
+    public VariantSkuResolver(ApiClient apiClient, Helper helper, ObjectMapper objectMapper, UpdateProperties updateProperties,
+                              SkuIndexStore skuIndexStore) {
+        this.apiClient = apiClient;
+        this.helper = helper;
+        this.objectMapper = objectMapper;
+        this.updateProperties = updateProperties;
+        this.skuIndexStore = skuIndexStore;
+    }
+
+    // the index only knows ids: indexed SKUs whose write needs no current state cost no request at all,
+    // the rest are read by variant id, up to 100 ids per productVariants request
+    public Mono<Map<String, ProductsUpdateService.VariantInfo>> resolve(Collection<String> skus, Predicate<String> needsState) {
+        Set<String> distinct = distinctSkus(skus);
+        Map<String, ProductsUpdateService.VariantInfo> idsOnly = new HashMap<>();
+        Map<String, String> skuByVariantId = new LinkedHashMap<>();
+        Set<String> unindexed = new LinkedHashSet<>();
+        for (String sku : distinct) {
+            Optional<ProductsUpdateService.VariantInfo> indexed = skuIndexStore.get(sku);
+            if (indexed.isEmpty()) {
+                unindexed.add(sku);
+            } else if (needsState.test(sku)) {
+                skuByVariantId.put(indexed.get().variantId(), sku);
+            } else {
+                idsOnly.put(sku, indexed.get());
+            }
+        }
+        log.info("Resolving {} SKUs (fromIndex={}, byVariantId={}, bySku={})", distinct.size(), idsOnly.size(), skuByVariantId.size(), unindexed.size());
+        return lookup(new ArrayList<>(skuByVariantId.keySet()), "ids", helper.buildProductVariantsByIdQuery())
+            .flatMap(byId -> {
+                Map<String, ProductsUpdateService.VariantInfo> resolved = new HashMap<>(idsOnly);
+                Set<String> bySku = new LinkedHashSet<>(unindexed);
+                skuByVariantId.forEach((variantId, sku) -> {
+                    ProductsUpdateService.VariantInfo info = byId.get(sku);
+                    if (info != null && variantId.equals(info.variantId())) {
+                        resolved.put(sku, info);
+                    } else {
+                        // the indexed variant is gone or carries another SKU now
+                        skuIndexStore.invalidate(sku);
+                        bySku.add(sku);
+                    }
+                });
+                return lookup(new ArrayList<>(bySku), "skus", helper.buildProductVariantsBySkuQuery())
+                    .map(found -> {
+                        skuIndexStore.putAll(found);
+                        resolved.putAll(found);
+                        log.info("Resolved {} of {} SKUs to existing variants", resolved.size(), distinct.size());
+                        return resolved;
+                    });
+            });
+    }
+
+    public Mono<Map<String, ProductsUpdateService.VariantInfo>> resolveRemotely(Collection<String> skus) {
+        Set<String> distinct = distinctSkus(skus);
+        return lookup(new ArrayList<>(distinct), "skus", helper.buildProductVariantsBySkuQuery())
+            .map(found -> {
+                log.info("Resolved {} of {} SKUs to existing variants", found.size(), distinct.size());
+                skuIndexStore.putAll(found);
+                return found;
+            });
+    }
+
+    private Set<String> distinctSkus(Collection<String> skus) {
+        Set<String> distinct = new LinkedHashSet<>();
+        skus.stream()
+            .filter(sku -> sku != null && !sku.isBlank())
+            .forEach(distinct::add);
+        return distinct;
+    }
+
+    private Mono<Map<String, ProductsUpdateService.VariantInfo>> lookup(List<String> keys, String variable, String query) {
+        if (keys.isEmpty()) {
+            return Mono.just(new HashMap<>());
+        }
+        int batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, updateProperties.getSkuBatchSize()));
+        List<List<String>> batches = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += batchSize) {
+            batches.add(keys.subList(from, Math.min(keys.size(), from + batchSize)));
+        }
+        log.info("Looking up {} variants by {} in {} batches (batchSize={})", keys.size(), variable, batches.size(), batchSize);
+        return Flux.fromIterable(batches)
+            .flatMap(batch -> resolveBatch(batch, variable, query), Math.max(1, updateProperties.getSkuLookupConcurrency()))
+            .reduce(new HashMap<>(), (resolved, found) -> {
+                resolved.putAll(found);
+                return resolved;
+            });
+    }
+
+    private Mono<Map<String, ProductsUpdateService.VariantInfo>> resolveBatch(List<String> keys, String variable, String query) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("first", keys.size());
+        variables.put(variable, keys);
+        return apiClient.mutation(query, variables)
+            .flatMap(body -> {
+                try {
+                    JsonNode edges = objectMapper.readTree(body).path("data").path("productVariants").path("edges");
+                    Map<String, ProductsUpdateService.VariantInfo> found = new HashMap<>();
+                    if (edges.isArray()) {
+                        for (JsonNode edge : edges) {
+                            JsonNode variant = edge.path("node");
+                            String sku = variant.path("sku").asText(null);
+                            String variantId = variant.path("id").asText(null);
+                            if (sku == null || variantId == null) {
+                                continue;
+                            }
+                            String productId = variant.path("product").path("id").asText(null);
+                            found.put(sku, new ProductsUpdateService.VariantInfo(variantId, productId,
+                                readPublished(variant.path("product").path("channelListings")), readState(variant)));
+                        }
+                    }
+                    return Mono.just(found);
+                } catch (Exception e) {
+                    return Mono.error(e);
+                }
+            });
+    }
+
+    private VariantState readState(JsonNode variant) {
+        JsonNode product = variant.path("product");
+        Map<String, List<String>> attributeValues = new HashMap<>();
+        Map<String, Boolean> attributeBooleans = new HashMap<>();
+        product.path("attributes").forEach(attribute -> {
+            String attributeId = attribute.path("attribute").path("id").asText(null);
+            if (attributeId == null) {
+                return;
+            }
+            List<String> names = new ArrayList<>();
+            attribute.path("values").forEach(value -> {
+                if (value.path("boolean").isBoolean()) {
+                    attributeBooleans.put(attributeId, value.path("boolean").asBoolean());
+                }
+                if (value.path("name").isTextual()) {
+                    names.add(value.path("name").asText());
+                }
+            });
+            attributeValues.put(attributeId, names);
+        });
+        Map<String, Boolean> publishedByChannel = new HashMap<>();
+        product.path("channelListings").forEach(listing -> {
+            String channelId = listing.path("channel").path("id").asText(null);
+            if (channelId != null && listing.path("isPublished").isBoolean()) {
+                publishedByChannel.put(channelId, listing.path("isPublished").asBoolean());
+            }
+        });
+        Map<String, Double> priceByChannel = new HashMap<>();
+        Map<String, Double> costPriceByChannel = new HashMap<>();
+        variant.path("channelListings").forEach(listing -> {
+            String channelId = listing.path("channel").path("id").asText(null);
+            if (channelId == null) {
+                return;
+            }
+            if (listing.path("price").path("amount").isNumber()) {
+                priceByChannel.put(channelId, listing.path("price").path("amount").asDouble());
+            }
+            if (listing.path("costPrice").path("amount").isNumber()) {
+                costPriceByChannel.put(channelId, listing.path("costPrice").path("amount").asDouble());
+            }
+        });
+        Map<String, Integer> stockByWarehouse = new HashMap<>();
+        variant.path("stocks").forEach(stock -> {
+            String warehouseId = stock.path("warehouse").path("id").asText(null);
+            if (warehouseId != null && stock.path("quantity").isNumber()) {
+                stockByWarehouse.put(warehouseId, stock.path("quantity").asInt());
+            }
+        });
+        return new VariantState(
+            product.path("name").asText(null),
+            product.path("category").path("id").asText(null),
+            product.path("weight").path("value").isNumber() ? product.path("weight").path("value").asDouble() : null,
+            product.path("rating").isNumber() ? product.path("rating").asDouble() : null,
+            attributeValues,
+            attributeBooleans,
+            publishedByChannel,
+            priceByChannel,
+            costPriceByChannel,
+            stockByWarehouse);
+    }
+
+    private Boolean readPublished(JsonNode listings) {
+        Boolean published = null;
+        if (listings.isArray()) {
+            for (JsonNode listing : listings) {
+                if (listing.path("isPublished").isBoolean() && listing.path("isPublished").asBoolean()) {
+                    return true;
+                }
+                if (listing.path("isPublished").isBoolean()) {
+                    published = false;
+                }
+            }
+        }
+        return published;
+    }
+}
@@ -0,0 +1,16 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import java.util.List;
+import java.util.Map;
+
+public record VariantState(String name,
+                           String categoryId,
+                           Double weight,
+                           Double rating,
+                           Map<String, List<String>> attributeValues,
+                           Map<String, Boolean> attributeBooleans,
+                           Map<String, Boolean> publishedByChannel,
+                           Map<String, Double> priceByChannel,
+                           Map<String, Double> costPriceByChannel,
+                           Map<String, Integer> stockByWarehouse) {
+}
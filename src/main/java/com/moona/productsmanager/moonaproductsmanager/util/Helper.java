@@ -2,6 +2,7 @@ package com.moona.productsmanager.moonaproductsmanager.util;
 
 import com.moona.productsmanager.moonaproductsmanager.config.CatalogProperties;
 import com.moona.productsmanager.moonaproductsmanager.model.Product;
+import com.moona.productsmanager.moonaproductsmanager.model.UpdateField;
 import org.springframework.stereotype.Component;
 
 import java.text.SimpleDateFormat;
@@ -10,6 +11,58 @@ import java.util.*;
 @Component
 public class Helper {
 
+    private static final String VARIANT_STATE_EDGES =
+            "    edges {\n" +
+            "      node {\n" +
+            "        id\n" +
+            "        sku\n" +
+            "        channelListings {\n" +
+            "          channel {\n" +
+            "            id\n" +
+            "          }\n" +
+            "          price {\n" +
+            "            amount\n" +
+            "          }\n" +
+            "          costPrice {\n" +
+            "            amount\n" +
+            "          }\n" +
+            "        }\n" +
+            "        stocks {\n" +
+            "          warehouse {\n" +
+            "            id\n" +
+            "          }\n" +
+            "          quantity\n" +
+            "        }\n" +
+            "        product {\n" +
+            "          id\n" +
+            "          name\n" +
+            "          rating\n" +
+            "          category {\n" +
+            "            id\n" +
+            "          }\n" +
+            "          weight {\n" +
+            "            value\n" +
+            "          }\n" +
+            "          attributes {\n" +
+            "            attribute {\n" +
+            "              id\n" +
+            "            }\n" +
+            "            values {\n" +
+            "              name\n" +
+            "              boolean\n" +
+            "            }\n" +
+            "          }\n" +
+            "          channelListings {\n" +
+            "            channel {\n" +
+            "              id\n" +
+            "              slug\n" +
+            "            }\n" +
+            "            isPublished\n" +
+            "          }\n" +
+            "        }\n" +
+            "      }\n" +
+            "    }\n";
+
     private final CatalogProperties catalogProperties;
 
     public Helper(CatalogProperties catalogProperties) {
@@ -26,25 +79,54 @@ public class Helper {
         return productCreateInput;
     }
 
-    public Map<String, Object> buildProductInputObject(Product product) {
-        Map<String, Object> productCreateInput = new HashMap<>();
-        if (product.getName() != null) {
-            productCreateInput.put("name", product.getName());
+    public Map<String, Object> buildProductBulkCreateInput(Product product) {
+        Map<String, Object> variantInput = new HashMap<>();
+        variantInput.put("sku", product.getSku());
+        variantInput.put("trackInventory", product.getTrackInventory());
+        variantInput.put("attributes", new ArrayList<>()); // required empty list
+        if (product.getWarehouseId() != null) {
+            variantInput.put("stocks", buildStocksInput(product));
         }
-        if (product.getCategoryId() != null) {
-            productCreateInput.put("category", product.getCategoryId());
+        if (product.getChannelId() != null && product.getPrice() != null) {
+            variantInput.put("channelListings", buildProductVariantChannelListingAddInput(product));
         }
-        if (product.getWeight() != null) {
-            productCreateInput.put("weight", product.getWeight());
+
+        Map<String, Object> productBulkCreateInput = buildProductCreateInputObject(product);
+        productBulkCreateInput.put("variants", List.of(variantInput));
+        if (product.getChannelId() != null) {
+            Map<String, Object> channelListing = new HashMap<>();
+            channelListing.put("channelId", product.getChannelId());
+            channelListing.put("isPublished", product.getPublished());
+            channelListing.put("visibleInListings", true);
+            channelListing.put("isAvailableForPurchase", true);
+            productBulkCreateInput.put("channelListings", List.of(channelListing));
         }
-        if (product.getRating() != null) {
+        return productBulkCreateInput;
+    }
+
+    public Map<String, Object> buildProductInputObject(Product product, Set<UpdateField> fields) {
+        Map<String, Object> productCreateInput = new HashMap<>();
+        if (fields.contains(UpdateField.MASTER)) {
+            if (product.getName() != null) {
+                productCreateInput.put("name", product.getName());
+            }
+            if (product.getCategoryId() != null) {
+                productCreateInput.put("category", product.getCategoryId());
+            }
+            if (product.getWeight() != null) {
+                productCreateInput.put("weight", product.getWeight());
+            }
+        }
+        if (fields.contains(UpdateField.RATING) && product.getRating() != null) {
             productCreateInput.put("rating", product.getRating());
         }
-        productCreateInput.put("attributes", buildProductAttributes(product));
+        if (fields.contains(UpdateField.ATTRIBUTES)) {
+            productCreateInput.put("attributes", buildProductAttributes(product));
+        }
         return productCreateInput;
     }
 
-    private List<Map<String, Object>> buildProductAttributes(Product product) {
+    public List<Map<String, Object>> buildProductAttributes(Product product) {
         List<Map<String, Object>> productAttributes = new ArrayList<>();
 
         if (product.getMinAmount() != null) {
@@ -176,35 +258,18 @@ public class Helper {
         return List.of(boxSizeMetadataItem, boxBarcodeMetadataItem, boxPriceMetadataItem);
     }
 
-    public String buildProductVariantQuery() {
-        return "query productVariant ($sku: String) {\n" +
-            "  productVariant(sku: $sku) {\n" +
-            "    id\n" +
-            "    product {\n" +
-            "      id\n" +
-            "      name\n" +
-            "      category {\n" +
-            "        name\n" +
-            "      }\n" +
-            "      channelListings {\n" +
-            "        channel {\n" +
-            "          slug\n" +
-            "        }\n" +
-            "        isPublished\n" +
-            "      }\n" +
-            "      attributes {\n" +
-            "        attribute {\n" +
-            "          id\n" +
-            "          slug\n" +
-            "          name\n" +
-            "        }\n" +
-            "        values {\n" +
-            "          id\n" +
-            "          slug\n" +
-            "          name\n" +
-            "        }\n" +
-            "      }\n" +
-            "    }\n" +
+    public String buildProductVariantsBySkuQuery() {
+        return "query productVariantsBySku ($first: Int, $skus: [String!]) {\n" +
+            "  productVariants(first: $first, filter: {sku: $skus}) {\n" +
+            VARIANT_STATE_EDGES +
+            "  }\n" +
+            "}";
+    }
+
+    public String buildProductVariantsByIdQuery() {
+        return "query productVariantsById ($first: Int, $ids: [ID!]) {\n" +
+            "  productVariants(first: $first, ids: $ids) {\n" +
+            VARIANT_STATE_EDGES +
             "  }\n" +
             "}";
     }
@@ -0,0 +1,150 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.moona.productsmanager.moonaproductsmanager.config.UpdateProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void growsAfterSuccessfulOperations() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 64, 10000);
+
+        for (int i = 0; i < 4; i++) {
+            limiter.run(() -> Mono.just(1)).block(Duration.ofSeconds(5));
+        }
+
+        assertThat(limiter.stats().limit()).isEqualTo(3);
+    }
+
+    @Test
+    void neverGrowsPastTheMaximum() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 2, 10000);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.run(() -> Mono.just(1)).block(Duration.ofSeconds(5));
+        }
+
+        assertThat(limiter.stats().limit()).isEqualTo(2);
+    }
+
+    @Test
+    void halvesOnOverloadErrors() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 64, 10000);
+
+        limiter.run(() -> Mono.error(new TimeoutException())).onErrorResume(ex -> Mono.empty()).block(Duration.ofSeconds(5));
+        assertThat(limiter.stats().limit()).isEqualTo(4);
+
+        limiter.run(() -> Mono.error(new IllegalArgumentException())).onErrorResume(ex -> Mono.empty()).block(Duration.ofSeconds(5));
+        assertThat(limiter.stats().limit()).isEqualTo(4);
+    }
+
+    @Test
+    void backsOffOnFailedAttemptsBeforeTheOperationFails() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 64, 10000);
+
+        limiter.recordFailure(new IllegalArgumentException());
+        assertThat(limiter.stats().limit()).isEqualTo(8);
+
+        // ApiClient reports each timed-out attempt while its retries are still pending
+        limiter.recordFailure(new TimeoutException());
+        assertThat(limiter.stats().limit()).isEqualTo(4);
+    }
+
+    @Test
+    void halvesOnceForSlowRequestsOfTheSameSpell() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 64, 50);
+
+        limiter.recordLatency(Duration.ofMillis(10).toNanos());
+        assertThat(limiter.stats().limit()).isEqualTo(8);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.recordLatency(Duration.ofMillis(60).toNanos());
+        }
+        assertThat(limiter.stats().limit()).isEqualTo(4);
+        assertThat(limiter.stats().p99Ms()).isEqualTo(60);
+    }
+
+    @Test
+    void halvesAgainOnceTheThresholdPeriodHasPassed() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 64, 50);
+
+        limiter.recordLatency(Duration.ofMillis(60).toNanos());
+        Thread.sleep(60);
+        limiter.recordLatency(Duration.ofMillis(60).toNanos());
+
+        assertThat(limiter.stats().limit()).isEqualTo(2);
+    }
+
+    @Test
+    void ignoresTimeSpentHoldingThePermit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 64, 50);
+
+        // queueing behind the rate limiter or a batch keeps the permit, but is not request latency
+        limiter.run(() -> Mono.delay(Duration.ofMillis(120))).block(Duration.ofSeconds(5));
+
+        assertThat(limiter.stats().limit()).isEqualTo(4);
+    }
+
+    @Test
+    void grantsWaitersByPriorityThenArrival() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 10000);
+        Sinks.Empty<Void> holder = Sinks.empty();
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        Mono<Void> held = limiter.run(0, holder::asMono);
+        held.subscribe();
+        List<Mono<String>> queued = List.of(
+            limiter.run(5, () -> record(order, "low")),
+            limiter.run(1, () -> record(order, "high-1")),
+            limiter.run(1, () -> record(order, "high-2")));
+        queued.forEach(Mono::subscribe);
+
+        assertThat(order).isEmpty();
+        assertThat(limiter.stats().inFlight()).isEqualTo(1);
+
+        holder.tryEmitEmpty();
+
+        assertThat(order).containsExactly("high-1", "high-2", "low");
+        assertThat(limiter.stats().inFlight()).isZero();
+    }
+
+    @Test
+    void cancelledWaiterGivesUpItsPlace() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 10000);
+        Sinks.Empty<Void> holder = Sinks.empty();
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        limiter.run(0, holder::asMono).subscribe();
+        limiter.run(1, () -> record(order, "cancelled")).subscribe().dispose();
+        limiter.run(2, () -> record(order, "kept")).subscribe();
+
+        holder.tryEmitEmpty();
+
+        assertThat(order).containsExactly("kept");
+    }
+
+    private static Mono<String> record(List<String> order, String label) {
+        return Mono.fromCallable(() -> {
+            order.add(label);
+            return label;
+        });
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit, int maxLimit, int latencyThresholdMs) {
+        UpdateProperties updateProperties = new UpdateProperties();
+        updateProperties.getConcurrency().setInitialLimit(initialLimit);
+        updateProperties.getConcurrency().setMinLimit(1);
+        updateProperties.getConcurrency().setMaxLimit(maxLimit);
+        updateProperties.getConcurrency().setLatencyThresholdMs(latencyThresholdMs);
+        return new AdaptiveConcurrencyLimiter(updateProperties);
+    }
+}
@@ -0,0 +1,84 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.moona.productsmanager.moonaproductsmanager.config.ApiProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApiRateLimiterTest {
+
+    @Test
+    void servesTheBurstWithoutWaiting() {
+        ApiRateLimiter rateLimiter = rateLimiter(10, 3);
+
+        assertThat(rateLimiter.reserve(1)).isZero();
+        assertThat(rateLimiter.reserve(1)).isZero();
+        assertThat(rateLimiter.reserve(1)).isZero();
+    }
+
+    @Test
+    void queuesCallersBehindAnEmptyBucket() {
+        ApiRateLimiter rateLimiter = rateLimiter(10, 1);
+        rateLimiter.reserve(1);
+
+        long first = rateLimiter.reserve(1);
+        long second = rateLimiter.reserve(1);
+
+        // each reservation waits for its own token, so a later caller waits one refill interval longer
+        assertThat(first).isPositive().isLessThanOrEqualTo(Duration.ofMillis(101).toNanos());
+        assertThat(second - first).isBetween(Duration.ofMillis(90).toNanos(), Duration.ofMillis(101).toNanos());
+    }
+
+    @Test
+    void capsHeavyOperationsAtTheBurst() {
+        ApiRateLimiter rateLimiter = rateLimiter(10, 2);
+
+        assertThat(rateLimiter.reserve(50)).isZero();
+        assertThat(rateLimiter.reserve(1)).isPositive().isLessThanOrEqualTo(Duration.ofMillis(101).toNanos());
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        ApiRateLimiter rateLimiter = rateLimiter(50, 1);
+        rateLimiter.reserve(1);
+
+        Thread.sleep(40);
+
+        assertThat(rateLimiter.reserve(1)).isZero();
+    }
+
+    @Test
+    void cancelledWaitersGiveTheirTokensBack() {
+        ApiRateLimiter rateLimiter = rateLimiter(10, 1);
+        rateLimiter.reserve(1);
+
+        for (int i = 0; i < 20; i++) {
+            rateLimiter.acquire(1).subscribe().dispose();
+        }
+
+        // without the refunds the bucket would owe two seconds of tokens
+        assertThat(rateLimiter.reserve(1)).isLessThanOrEqualTo(Duration.ofMillis(101).toNanos());
+    }
+
+    @Test
+    void weighsOperationsByName() {
+        ApiProperties apiProperties = new ApiProperties();
+        apiProperties.getRateLimit().setOperationWeights(Map.of("ProductMediaCreate", 3));
+        ApiRateLimiter rateLimiter = new ApiRateLimiter(apiProperties);
+
+        assertThat(rateLimiter.weight("mutation ProductMediaCreate($product: ID!) { x }")).isEqualTo(3);
+        assertThat(rateLimiter.weight("query Products { x }")).isEqualTo(1);
+        assertThat(rateLimiter.weight("{ shop { name } }")).isEqualTo(1);
+        assertThat(rateLimiter.weight(null)).isEqualTo(1);
+    }
+
+    private static ApiRateLimiter rateLimiter(double requestsPerSecond, int burst) {
+        ApiProperties apiProperties = new ApiProperties();
+        apiProperties.getRateLimit().setRequestsPerSecond(requestsPerSecond);
+        apiProperties.getRateLimit().setBurst(burst);
+        return new ApiRateLimiter(apiProperties);
+    }
+}
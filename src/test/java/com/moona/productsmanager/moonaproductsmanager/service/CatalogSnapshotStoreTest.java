@@ -0,0 +1,73 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.moona.productsmanager.moonaproductsmanager.config.SnapshotProperties;
+import com.moona.productsmanager.moonaproductsmanager.model.CatalogSnapshot;
+import com.moona.productsmanager.moonaproductsmanager.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogSnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private CatalogSnapshotStore store;
+
+    @BeforeEach
+    void setUp() {
+        SnapshotProperties snapshotProperties = new SnapshotProperties();
+        snapshotProperties.setPath(dir.resolve("catalog-snapshot.json.gz").toString());
+        snapshotProperties.setMaxAgeMinutes(30);
+        store = new CatalogSnapshotStore(snapshotProperties);
+    }
+
+    @Test
+    void servesARecentFullSync() throws Exception {
+        save(OffsetDateTime.now(ZoneOffset.UTC));
+
+        assertThat(store.fresh()).isPresent();
+        assertThat(store.fresh().get().size()).isEqualTo(1);
+    }
+
+    @Test
+    void stopsServingAfterTheAppWrites() throws Exception {
+        save(OffsetDateTime.now(ZoneOffset.UTC).minusMinutes(1));
+
+        store.markStale();
+
+        assertThat(store.fresh()).isEmpty();
+        assertThat(store.current()).isPresent();
+    }
+
+    @Test
+    void aLaterFullSyncServesAgain() throws Exception {
+        store.markStale();
+        Thread.sleep(5);
+        save(OffsetDateTime.now(ZoneOffset.UTC));
+
+        assertThat(store.fresh()).isPresent();
+    }
+
+    @Test
+    void ignoresAnOldFullSync() throws Exception {
+        save(OffsetDateTime.now(ZoneOffset.UTC).minusMinutes(31));
+
+        assertThat(store.fresh()).isEmpty();
+    }
+
+    private void save(OffsetDateTime fullSyncAt) throws Exception {
+        Product product = new Product();
+        product.setId("UHJvZHVjdDox");
+        product.setSku("7290000000011");
+        product.setUpdatedAt(fullSyncAt.minusHours(1));
+        store.save(new CatalogSnapshot(null, fullSyncAt, null, List.of(product)));
+    }
+}
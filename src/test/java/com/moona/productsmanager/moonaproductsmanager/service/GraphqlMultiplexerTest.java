@@ -0,0 +1,96 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moona.productsmanager.moonaproductsmanager.config.ApiProperties;
+import com.moona.productsmanager.moonaproductsmanager.config.UpdateProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GraphqlMultiplexerTest {
+
+    private GraphqlMultiplexer multiplexer;
+
+    @AfterEach
+    void tearDown() {
+        if (multiplexer != null) {
+            multiplexer.destroy();
+        }
+    }
+
+    @Test
+    void completesEveryOperationWhileDispatchSlotsAreBusy() {
+        multiplexer = multiplexer(aliases -> Mono.delay(Duration.ofMillis(100))
+            .thenReturn(data(aliases, alias -> "{\"errors\": []}")), 5, 2);
+
+        // operations trickle in, so the window flushes partial buffers and uses up the dispatch demand
+        long completed = Flux.range(0, 200).delayElements(Duration.ofMillis(1))
+            .flatMap(i -> multiplexer.mutate("productUpdate", Map.of("id", GraphqlBatch.argument("ID!", "p" + i)), "errors { message }"), 64)
+            .count()
+            .block(Duration.ofSeconds(20));
+
+        assertThat(completed).isEqualTo(200);
+    }
+
+    @Test
+    void failsEveryOperationWhenTheDocumentIsRejected() {
+        multiplexer = multiplexer(aliases -> Mono.just("{\"errors\": [{\"message\": \"Variable 'op2_id' got invalid value\"}], \"data\": null}"), 25, 1);
+
+        Flux<JsonNode> results = Flux.range(0, 3)
+            .flatMap(i -> multiplexer.mutate("productUpdate", Map.of("id", GraphqlBatch.argument("ID!", "p" + i)), "errors { message }")
+                .onErrorResume(ex -> Mono.empty()));
+
+        assertThat(results.collectList().block(Duration.ofSeconds(5))).isEmpty();
+    }
+
+    @Test
+    void failsOnlyTheOperationWithoutResult() {
+        multiplexer = multiplexer(aliases -> Mono.just(data(aliases, alias -> "op1".equals(alias) ? "null" : "{\"errors\": []}")), 25, 1);
+
+        List<String> outcomes = Flux.range(0, 2)
+            .flatMap(i -> multiplexer.mutate("productUpdate", Map.of("id", GraphqlBatch.argument("ID!", "p" + i)), "errors { message }")
+                .map(result -> "ok")
+                .onErrorResume(ex -> Mono.just(ex.getMessage())))
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+        assertThat(outcomes).hasSize(2).contains("ok");
+        assertThat(outcomes).anyMatch(outcome -> outcome.contains("returned no result"));
+    }
+
+    private GraphqlMultiplexer multiplexer(Function<TreeSet<String>, Mono<String>> responder, int maxBatchSize, int concurrency) {
+        ApiProperties apiProperties = new ApiProperties();
+        apiProperties.getMultiplex().setMaxBatchSize(maxBatchSize);
+        apiProperties.getMultiplex().setConcurrency(concurrency);
+        apiProperties.getMultiplex().setWindowMs(5);
+        apiProperties.getMultiplex().setOperationTimeoutMs(10000);
+        ApiClient apiClient = new ApiClient(null, apiProperties, new ApiRateLimiter(apiProperties),
+            new AdaptiveConcurrencyLimiter(new UpdateProperties())) {
+            @Override
+            public Mono<String> mutation(String query, Map<String, Object> variables) {
+                TreeSet<String> aliases = variables.keySet().stream()
+                    .map(variable -> variable.substring(0, variable.indexOf('_')))
+                    .collect(Collectors.toCollection(TreeSet::new));
+                return responder.apply(aliases);
+            }
+        };
+        return new GraphqlMultiplexer(apiClient, new ObjectMapper(), apiProperties);
+    }
+
+    private static String data(TreeSet<String> aliases, Function<String, String> result) {
+        return aliases.stream()
+            .map(alias -> "\"" + alias + "\": " + result.apply(alias))
+            .collect(Collectors.joining(", ", "{\"data\": {", "}}"));
+    }
+}
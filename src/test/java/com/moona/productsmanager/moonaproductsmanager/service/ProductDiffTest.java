@@ -0,0 +1,134 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.moona.productsmanager.moonaproductsmanager.config.CatalogProperties;
+import com.moona.productsmanager.moonaproductsmanager.model.Product;
+import com.moona.productsmanager.moonaproductsmanager.model.UpdateField;
+import com.moona.productsmanager.moonaproductsmanager.service.ProductDiff.Change;
+import com.moona.productsmanager.moonaproductsmanager.util.Helper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductDiffTest {
+
+    private static final Set<UpdateField> ALL_FIELDS = EnumSet.allOf(UpdateField.class);
+
+    private ProductDiff productDiff;
+
+    @BeforeEach
+    void setUp() {
+        CatalogProperties catalogProperties = new CatalogProperties();
+        catalogProperties.getAttributes().setProductMinAmountId("min");
+        catalogProperties.getAttributes().setBoycottId("boycott");
+        catalogProperties.getAttributes().setBoxSizeId("box");
+        productDiff = new ProductDiff(new Helper(catalogProperties));
+    }
+
+    @Test
+    void unchangedProductNeedsNoWrites() {
+        Product product = product();
+
+        assertThat(changed(product, state())).isEmpty();
+    }
+
+    @Test
+    void ignoresAmountsWithinTolerance() {
+        Product product = product();
+        product.setPrice(29.90000001);
+        product.setWeight(1.50000001);
+
+        assertThat(changed(product, state())).isEmpty();
+    }
+
+    @Test
+    void detectsAmountsBeyondTolerance() {
+        Product product = product();
+        product.setPrice(29.91);
+        product.setWeight(1.6);
+
+        assertThat(changed(product, state())).containsExactlyInAnyOrder(Change.VARIANT_LISTING, Change.PRODUCT);
+    }
+
+    @Test
+    void writesEverythingApplicableWithoutKnownState() {
+        Product product = product();
+        Set<Change> applicable = productDiff.applicable(product, ALL_FIELDS);
+
+        assertThat(productDiff.changed(product, null, applicable, ALL_FIELDS)).isEqualTo(applicable);
+    }
+
+    @Test
+    void missingRemoteValuesCountAsChanges() {
+        VariantState state = new VariantState("Olive oil", "cat-1", 1.5, 4.5,
+            Map.of("min", List.of("5"), "box", List.of("12")), Map.of("boycott", false),
+            Map.of(), Map.of("ch-1", 29.9), Map.of(), Map.of());
+
+        assertThat(changed(product(), state)).containsExactlyInAnyOrder(Change.PRODUCT_LISTING, Change.VARIANT_LISTING, Change.STOCKS);
+    }
+
+    @Test
+    void nullMasterValuesAreNotWritten() {
+        Product product = product();
+        product.setName(null);
+        product.setWeight(null);
+        product.setCategoryId(null);
+        product.setRating(null);
+
+        assertThat(changed(product, state())).isEmpty();
+    }
+
+    @Test
+    void comparesAttributeValuesAndBooleans() {
+        Product boxChanged = product();
+        boxChanged.setBoxSize(24);
+        Product boycottChanged = product();
+        boycottChanged.setBoycott(true);
+
+        assertThat(changed(boxChanged, state())).containsExactly(Change.PRODUCT);
+        assertThat(changed(boycottChanged, state())).containsExactly(Change.PRODUCT);
+    }
+
+    @Test
+    void attributesAreOnlyComparedWhenRequested() {
+        Product product = product();
+        product.setBoxSize(24);
+        Set<UpdateField> fields = EnumSet.of(UpdateField.MASTER);
+
+        assertThat(productDiff.changed(product, state(), productDiff.applicable(product, fields), fields)).isEmpty();
+    }
+
+    private Set<Change> changed(Product product, VariantState state) {
+        return productDiff.changed(product, state, productDiff.applicable(product, ALL_FIELDS), ALL_FIELDS);
+    }
+
+    private static Product product() {
+        Product product = new Product();
+        product.setSku("7290000000011");
+        product.setName("Olive oil");
+        product.setCategoryId("cat-1");
+        product.setWeight(1.5);
+        product.setRating(4.5);
+        product.setMinAmount("5");
+        product.setBoxSize(12);
+        product.setBoycott(false);
+        product.setChannelId("ch-1");
+        product.setPublished(true);
+        product.setPrice(29.9);
+        product.setCostPrice(21.5);
+        product.setWarehouseId("wh-1");
+        product.setAvailableQuantity(7);
+        return product;
+    }
+
+    private static VariantState state() {
+        return new VariantState("Olive oil", "cat-1", 1.5, 4.5,
+            Map.of("min", List.of("5"), "box", List.of("12")), Map.of("boycott", false),
+            Map.of("ch-1", true), Map.of("ch-1", 29.9), Map.of("ch-1", 21.5), Map.of("wh-1", 7));
+    }
+}
@@ -0,0 +1,151 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.moona.productsmanager.moonaproductsmanager.config.CatalogProperties;
+import com.moona.productsmanager.moonaproductsmanager.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductStreamDecoderTest {
+
+    private static final String PAGE = """
+        {"data": {"products": {
+          "pageInfo": {"hasNextPage": true, "endCursor": "YXJyYXljb25uZWN0aW9uOjE="},
+          "edges": [
+            {"node": {
+              "id": "UHJvZHVjdDox", "name": "Olive oil", "rating": 4.5,
+              "created": "2026-01-10T08:00:00+00:00", "updatedAt": "2026-02-01T12:30:00+00:00",
+              "thumbnail": {"url": "https://cdn.example/oil.png"},
+              "category": {"id": "Q2F0ZWdvcnk6MTk=", "name": "Oil", "parent": {"name": "Pantry"}},
+              "channelListings": [
+                {"channel": {"slug": "arraba"}, "isAvailableForPurchase": true, "isPublished": false},
+                {"channel": {"slug": "ramallah"}, "isAvailableForPurchase": true, "isPublished": true}
+              ],
+              "attributes": [
+                {"attribute": {"id": "min", "name": "Min"}, "values": [{"id": "v1", "name": "5"}]},
+                {"attribute": {"id": "weighted", "name": "Weighted"}, "values": [{"id": "v2", "name": "true"}]},
+                {"attribute": {"id": "box", "name": "Box"}, "values": [{"id": "v3", "name": "12"}]},
+                {"attribute": {"id": "other", "name": "Other"}, "values": []}
+              ],
+              "weight": {"unit": "KG", "value": 1.5},
+              "metadata": [{"key": "k", "value": "v"}], "privateMetadata": [],
+              "variants": [
+                {"id": "UHJvZHVjdFZhcmlhbnQ6MQ==", "sku": "7290000000011", "name": "1L", "trackInventory": true,
+                 "images": [], "quantityAvailable": 7,
+                 "stocks": [{"quantity": 9, "quantityAllocated": 2, "warehouse": {"id": "V2FyZWhvdXNlOjE="}}],
+                 "channelListings": [
+                   {"channel": {"slug": "arraba"}, "price": {"amount": 31.0}, "costPrice": {"amount": 20.0}},
+                   {"channel": {"slug": "ramallah"}, "price": {"amount": 29.9}, "costPrice": {"amount": 21.5}}
+                 ]}
+              ]
+            }},
+            {"node": {
+              "id": "UHJvZHVjdDoy", "name": "Bread", "rating": null, "created": "not-a-date",
+              "thumbnail": null, "category": null, "channelListings": [], "attributes": [], "weight": null,
+              "variants": [
+                {"sku": "7290000000028", "trackInventory": false, "quantityAvailable": 0,
+                 "images": [{"url": "https://cdn.example/bread.png"}], "channelListings": []}
+              ]
+            }}
+          ]
+        }}}
+        """;
+
+    private ProductStreamDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        CatalogProperties catalogProperties = new CatalogProperties();
+        catalogProperties.getAttributes().setProductMinAmountId("min");
+        catalogProperties.getAttributes().setProductWeightedId("weighted");
+        catalogProperties.getAttributes().setBoxSizeId("box");
+        decoder = new ProductStreamDecoder(new ProductMapper(catalogProperties));
+    }
+
+    @Test
+    void decodesEveryMappedField() throws Exception {
+        List<Product> decoded = decoder.readProducts(PAGE.getBytes(StandardCharsets.UTF_8), "ramallah");
+
+        Product oil = new Product();
+        oil.setId("UHJvZHVjdDox");
+        oil.setName("Olive oil");
+        oil.setRating(4.5);
+        oil.setCreated(OffsetDateTime.parse("2026-01-10T08:00:00+00:00"));
+        oil.setUpdatedAt(OffsetDateTime.parse("2026-02-01T12:30:00+00:00"));
+        oil.setImageUrl("https://cdn.example/oil.png");
+        oil.setCategoryId("Q2F0ZWdvcnk6MTk=");
+        oil.setCategoryName("Oil");
+        oil.setParentCategoryName("Pantry");
+        oil.setPublished(true);
+        oil.setSku("7290000000011");
+        oil.setAvailableQuantity(7);
+        oil.setTrackInventory(true);
+        oil.setPrice(29.9);
+        oil.setCostPrice(21.5);
+        oil.setMinAmount("5");
+        oil.setWeighted("true");
+        oil.setBoxSize(12);
+        oil.setWeight(1.5);
+
+        Product bread = new Product();
+        bread.setId("UHJvZHVjdDoy");
+        bread.setName("Bread");
+        bread.setSku("7290000000028");
+        bread.setAvailableQuantity(0);
+        bread.setTrackInventory(false);
+        bread.setImageUrl("https://cdn.example/bread.png");
+
+        assertThat(decoded).usingRecursiveFieldByFieldElementComparator().containsExactly(oil, bread);
+    }
+
+    @Test
+    void readsChannelSpecificValues() throws Exception {
+        Product oil = decoder.readProducts(PAGE.getBytes(StandardCharsets.UTF_8), "ramallah").get(0);
+
+        assertThat(oil.getSku()).isEqualTo("7290000000011");
+        assertThat(oil.getPublished()).isTrue();
+        assertThat(oil.getPrice()).isEqualTo(29.9);
+        assertThat(oil.getCostPrice()).isEqualTo(21.5);
+        assertThat(oil.getAvailableQuantity()).isEqualTo(7);
+        assertThat(oil.getMinAmount()).isEqualTo("5");
+        assertThat(oil.getWeighted()).isEqualTo("true");
+        assertThat(oil.getBoxSize()).isEqualTo(12);
+        assertThat(oil.getWeight()).isEqualTo(1.5);
+        assertThat(oil.getParentCategoryName()).isEqualTo("Pantry");
+    }
+
+    @Test
+    void fallsBackToTheVariantImage() throws Exception {
+        Product bread = decoder.readProducts(PAGE.getBytes(StandardCharsets.UTF_8), "ramallah").get(1);
+
+        assertThat(bread.getImageUrl()).isEqualTo("https://cdn.example/bread.png");
+        assertThat(bread.getCreated()).isNull();
+        assertThat(bread.getRating()).isNull();
+    }
+
+    @Test
+    void readsPageInfo() throws Exception {
+        ProductStreamDecoder.PageInfo pageInfo = decoder.readPageInfo(PAGE.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(pageInfo.hasNextPage()).isTrue();
+        assertThat(pageInfo.endCursor()).isEqualTo("YXJyYXljb25uZWN0aW9uOjE=");
+    }
+
+    @Test
+    void rejectsPageWithoutProducts() {
+        byte[] rejected = """
+            {"errors": [{"message": "Value 500 exceeds the limit of 100 records", "extensions": {"exception": {"code": "GraphQLError"}}}],
+             "data": null}
+            """.getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> decoder.readPageInfo(rejected))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("exceeds the limit of 100");
+    }
+}
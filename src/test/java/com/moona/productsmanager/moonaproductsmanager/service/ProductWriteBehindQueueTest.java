@@ -0,0 +1,107 @@
+package com.moona.productsmanager.moonaproductsmanager.service;
+
+import com.moona.productsmanager.moonaproductsmanager.config.UpdateProperties;
+import com.moona.productsmanager.moonaproductsmanager.model.Product;
+import com.moona.productsmanager.moonaproductsmanager.model.UpdateField;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductWriteBehindQueueTest {
+
+    private ProductWriteBehindQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.destroy();
+        }
+    }
+
+    @Test
+    void mergeKeepsFieldsOutsideTheSubmissionMask() {
+        Product pending = new Product();
+        ProductWriteBehindQueue.merge(pending, product("7290000000011", 12.5, 40, null), EnumSet.of(UpdateField.PRICE, UpdateField.STOCK));
+
+        // a stale export passes price and stock along with the publish flag it actually changes
+        ProductWriteBehindQueue.merge(pending, product("7290000000011", 9.9, 0, false), EnumSet.of(UpdateField.PUBLISH));
+
+        assertThat(pending.getPrice()).isEqualTo(12.5);
+        assertThat(pending.getAvailableQuantity()).isEqualTo(40);
+        assertThat(pending.getPublished()).isFalse();
+        assertThat(pending.getSku()).isEqualTo("7290000000011");
+    }
+
+    @Test
+    void mergeLetsTheLatestCoveredValueWin() {
+        Product pending = new Product();
+        ProductWriteBehindQueue.merge(pending, product("7290000000011", 12.5, 40, null), EnumSet.of(UpdateField.PRICE));
+        ProductWriteBehindQueue.merge(pending, product("7290000000011", 13.0, null, null), EnumSet.of(UpdateField.PRICE));
+        ProductWriteBehindQueue.merge(pending, product("7290000000011", null, null, null), EnumSet.of(UpdateField.PRICE));
+
+        assertThat(pending.getPrice()).isEqualTo(13.0);
+        assertThat(pending.getAvailableQuantity()).isNull();
+    }
+
+    @Test
+    void failsOnlyTheSubmissionsInTheFailingGroup() {
+        queue = queue((products, fields) -> fields.contains(UpdateField.PUBLISH)
+            ? Mono.error(new IllegalStateException("publish failed"))
+            : Mono.empty());
+
+        Mono<String> stock = queue.submit(List.of(product("7290000000011", null, 5, null)), EnumSet.of(UpdateField.STOCK))
+            .thenReturn("ok").onErrorResume(ex -> Mono.just(ex.getMessage()));
+        Mono<String> publish = queue.submit(List.of(product("7290000000028", null, null, false)), EnumSet.of(UpdateField.PUBLISH))
+            .thenReturn("ok").onErrorResume(ex -> Mono.just(ex.getMessage()));
+
+        List<String> outcomes = Mono.zip(stock, publish, (first, second) -> List.of(first, second)).block(Duration.ofSeconds(5));
+
+        assertThat(outcomes).containsExactly("ok", "publish failed");
+    }
+
+    @Test
+    void failsEverySubmissionSharingTheFailingSku() {
+        queue = queue((products, fields) -> fields.contains(UpdateField.PUBLISH)
+            ? Mono.error(new IllegalStateException("publish failed"))
+            : Mono.empty());
+
+        Mono<String> stock = queue.submit(List.of(product("7290000000011", null, 5, null)), EnumSet.of(UpdateField.STOCK))
+            .thenReturn("ok").onErrorResume(ex -> Mono.just(ex.getMessage()));
+        Mono<String> publish = queue.submit(List.of(product("7290000000011", null, null, false)), EnumSet.of(UpdateField.PUBLISH))
+            .thenReturn("ok").onErrorResume(ex -> Mono.just(ex.getMessage()));
+
+        List<String> outcomes = Mono.zip(stock, publish, (first, second) -> List.of(first, second)).block(Duration.ofSeconds(5));
+
+        assertThat(outcomes).containsExactly("publish failed", "publish failed");
+    }
+
+    private ProductWriteBehindQueue queue(BiFunction<List<Product>, Set<UpdateField>, Mono<Void>> upsert) {
+        UpdateProperties updateProperties = new UpdateProperties();
+        updateProperties.getWriteBehind().setWindowMs(20);
+        ProductsUpdateService productsUpdateService = new ProductsUpdateService(null, null, null, null, updateProperties,
+            null, null, null, null, null, null, null) {
+            @Override
+            public Mono<Void> upsertProducts(List<Product> products, Set<UpdateField> fields, String resumeRunId) {
+                return upsert.apply(products, fields);
+            }
+        };
+        return new ProductWriteBehindQueue(productsUpdateService, updateProperties);
+    }
+
+    private static Product product(String sku, Double price, Integer quantity, Boolean published) {
+        Product product = new Product();
+        product.setSku(sku);
+        product.setPrice(price);
+        product.setAvailableQuantity(quantity);
+        product.setPublished(published);
+        return product;
+    }
+}